@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import hudson.model.Label;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+import jenkins.plugins.openstack.compute.internal.CircuitBreaker;
+
+/**
+ * Split workload of a label among all the OpenStack clouds that can provision it.
+ *
+ * Jenkins asks the clouds in turn and passes the workload the previous ones have not planned to the next one. Each
+ * cloud is therefore limited to the part of the workload the clouds ranked before it can not take. Clouds are ranked
+ * by their circuit breaker, healthy ones first and open ones not at all, and then by the recent time it took their
+ * servers to become active. The fastest healthy cloud gets the burst and the others the overflow, regardless of the
+ * order the clouds are configured in. Clouds with no boot observed yet follow in configuration order.
+ *
+ * @author ogondza
+ */
+/*package*/ final class CloudCoordinator {
+
+    private static final Logger LOGGER = Logger.getLogger(CloudCoordinator.class.getName());
+
+    /**
+     * Let every cloud fill its capacity as asked by Jenkins.
+     */
+    private static final boolean DISABLED = Boolean.getBoolean(CloudCoordinator.class.getName() + ".disabled");
+
+    private CloudCoordinator() {}
+
+    /**
+     * Part of the workload the cloud should provision.
+     *
+     * @return Number of executors, the whole workload when the cloud does not share the label with others.
+     */
+    /*package*/ static int share(@Nonnull JCloudsCloud cloud, @CheckForNull Label label, int excessWorkload) {
+        if (DISABLED || excessWorkload <= 0) return excessWorkload;
+
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return excessWorkload;
+
+        List<JCloudsCloud> sharing = new ArrayList<>();
+        for (Cloud c : jenkins.clouds) {
+            if (c instanceof JCloudsCloud && c.canProvision(label)) {
+                sharing.add((JCloudsCloud) c);
+            }
+        }
+        if (sharing.size() < 2 || !sharing.contains(cloud)) return excessWorkload;
+
+        List<Offer> offers = new ArrayList<>(sharing.size());
+        for (JCloudsCloud c : sharing) {
+            Offer offer = Offer.of(c, label);
+            if (offer != null) {
+                offers.add(offer);
+            }
+        }
+
+        int share = share(offers, cloud, excessWorkload);
+        if (share < excessWorkload) {
+            LOGGER.log(Level.FINE, "Cloud {0} provisioning {1} of {2} executors for {3}, ranked {4}",
+                    new Object[] {cloud.name, share, excessWorkload, label, offers}
+            );
+        }
+        return share;
+    }
+
+    /*package*/ static int share(@Nonnull List<Offer> offers, @Nonnull JCloudsCloud cloud, int excessWorkload) {
+        List<Offer> ranked = new ArrayList<>(offers);
+        Collections.sort(ranked, RANKING); // Stable, so configuration order breaks ties
+
+        long ahead = 0;
+        for (Offer offer : ranked) {
+            if (offer.cloud == cloud) {
+                long overflow = Math.max(0, excessWorkload - ahead);
+                return (int) Math.min(overflow, offer.headroom);
+            }
+            ahead += offer.headroom;
+        }
+        return 0; // Cloud is not healthy enough to be ranked
+    }
+
+    private static final Comparator<Offer> RANKING = new Comparator<Offer>() {
+        @Override public int compare(Offer o1, Offer o2) {
+            if (o1.healthy != o2.healthy) return o1.healthy ? -1 : 1;
+            // Clouds with no boot observed yet are not known to be faster, configuration order decides among them
+            boolean known1 = o1.bootTime >= 0;
+            boolean known2 = o2.bootTime >= 0;
+            if (known1 != known2) return known1 ? -1 : 1;
+            return known1 ? Long.compare(o1.bootTime, o2.bootTime) : 0;
+        }
+    };
+
+    /**
+     * What the cloud can provision for the label.
+     */
+    /*package*/ static final class Offer {
+        private final @Nonnull JCloudsCloud cloud;
+        private final boolean healthy;
+        private final @Nonnegative int headroom;
+        private final long bootTime;
+
+        /*package*/ Offer(@Nonnull JCloudsCloud cloud, boolean healthy, @Nonnegative int headroom, long bootTime) {
+            this.cloud = cloud;
+            this.healthy = healthy;
+            this.headroom = headroom;
+            this.bootTime = bootTime;
+        }
+
+        /**
+         * @return null if the cloud should not be asked to provision.
+         */
+        private static @CheckForNull Offer of(@Nonnull JCloudsCloud cloud, @CheckForNull Label label) {
+            CircuitBreaker breaker = cloud.getCircuitBreaker();
+            // Do not claim the half-open probe, the cloud does that when asked to provision
+            if (!breaker.wouldAllowRequest()) return null;
+
+            try {
+                boolean healthy = breaker.getState() == CircuitBreaker.State.CLOSED;
+                return new Offer(cloud, healthy, cloud.getHeadroom(label), cloud.getBootTime(label));
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.FINE, "Unable to determine capacity of " + cloud.name, ex);
+                return null;
+            }
+        }
+
+        @Override public String toString() {
+            return String.format("%s(%s, %d executors, %dms)",
+                    cloud.name, healthy ? "healthy" : "recovering", headroom, bootTime
+            );
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+import hudson.slaves.NodeProvisioner.PlannedNode;
+import jenkins.model.Jenkins;
+import jenkins.plugins.openstack.compute.internal.DemandHistory;
+import org.jenkinsci.plugins.cloudstats.CloudStatistics;
+import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
+import org.jenkinsci.plugins.cloudstats.TrackedPlannedNode;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Provision slaves ahead of the demand expected from its history.
+ *
+ * Executors demanded by the labels OpenStack clouds can provision are sampled every minute. Once the history predicts
+ * more executors than there are for the near future, the missing ones are provisioned the usual way so instance caps,
+ * resource caps and the split of the workload among clouds hold. Slaves not needed eventually are removed by the
+ * retention strategy.
+ *
+ * @author ogondza
+ */
+@Extension @Restricted(NoExternalUse.class)
+public final class DemandForecaster extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(DemandForecaster.class.getName());
+
+    /**
+     * Only record the demand, do not provision ahead of it.
+     */
+    private static final boolean DISABLED = Boolean.getBoolean(DemandForecaster.class.getName() + ".disabled");
+
+    /**
+     * Minutes ahead to prepare the executors for. Should cover the time it takes slave to boot and connect.
+     */
+    private static final long HORIZON = TimeUnit.MINUTES.toMillis(
+            Long.getLong(DemandForecaster.class.getName() + ".horizon", 15)
+    );
+
+    private DemandHistory history;
+
+    // Nodes provisioned ahead of the demand until they are online, NodeProvisioner does not know about them
+    private final Map<PlannedNode, ProvisioningActivity.Id> pending = new ConcurrentHashMap<>();
+
+    public DemandForecaster() {
+        super("OpenStack demand forecast");
+    }
+
+    public static @CheckForNull DemandForecaster get() {
+        ExtensionList<DemandForecaster> list = ExtensionList.lookup(DemandForecaster.class);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return;
+
+        long now = System.currentTimeMillis();
+        DemandHistory history = getHistory();
+        Collection<Label> labels = getLabels(jenkins, history);
+
+        boolean concluded = false;
+        List<String> names = new ArrayList<>(labels.size());
+        for (Label label : labels) {
+            names.add(label.getName());
+            concluded |= history.record(now, label.getName(), getDemand(jenkins, label));
+        }
+        history.retain(names);
+        if (concluded) {
+            save();
+        }
+
+        if (DISABLED || jenkins.isQuietingDown()) return;
+
+        for (Label label : labels) {
+            int forecast = history.forecast(now, label.getName(), HORIZON);
+            if (forecast > 0) {
+                preProvision(label, forecast);
+            }
+        }
+    }
+
+    /**
+     * Provision executors missing for label to meet the forecast.
+     *
+     * Only the demand predicted on top of the items queued now is provisioned, the queue is handled by NodeProvisioner.
+     *
+     * @return Nodes being provisioned.
+     */
+    /*package*/ @Nonnull List<PlannedNode> preProvision(@Nonnull Label label, int forecast) {
+        List<PlannedNode> planned = new ArrayList<>();
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return planned;
+
+        int capacity = getCapacity(jenkins, label);
+        // NodeProvisioner provisions for the items queued beyond the free executors, unaware of the nodes planned here
+        int free = Math.max(0, capacity - label.getBusyExecutors());
+        int queued = Math.max(0, jenkins.getQueue().countBuildableItemsFor(label) - free);
+        int deficit = forecast - capacity - queued;
+        if (deficit <= 0) return planned;
+
+        LOGGER.log(Level.INFO, "Provisioning {0} executors for {1} ahead of forecast demand of {2}",
+                new Object[] { deficit, label, forecast }
+        );
+        for (Cloud c : jenkins.clouds) {
+            if (deficit <= 0) break;
+            if (!(c instanceof JCloudsCloud) || !c.canProvision(label)) continue;
+
+            for (PlannedNode node : ((JCloudsCloud) c).provisionAhead(label, deficit)) {
+                deficit -= node.numExecutors;
+                planned.add(node);
+                track(node);
+            }
+        }
+        return planned;
+    }
+
+    /**
+     * Report to cloud statistics as NodeProvisioner would for the nodes it requested and count the node as pending
+     * until it is online.
+     */
+    /*package*/ void track(@Nonnull final PlannedNode node) {
+        if (!(node instanceof TrackedPlannedNode)) return;
+
+        final ProvisioningActivity.Id id = ((TrackedPlannedNode) node).getId();
+        pending.put(node, id);
+        final CloudStatistics.ProvisioningListener provisioningListener = CloudStatistics.ProvisioningListener.get();
+        provisioningListener.onStarted(id);
+        Computer.threadPoolForRemoting.submit(new Runnable() {
+            @Override public void run() {
+                try {
+                    provisioningListener.onComplete(id, node.future.get());
+                } catch (ExecutionException ex) {
+                    provisioningListener.onFailure(id, ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    pending.remove(node);
+                }
+            }
+        });
+    }
+
+    /**
+     * Executors for label provisioned ahead of the demand from cloud that are not online yet.
+     *
+     * NodeProvisioner does not count them as it has not planned them.
+     */
+    /*package*/ int getPendingExecutors(@Nonnull JCloudsCloud cloud, @CheckForNull Label label) {
+        int executors = 0;
+        for (Map.Entry<PlannedNode, ProvisioningActivity.Id> e : pending.entrySet()) {
+            PlannedNode node = e.getKey();
+            ProvisioningActivity.Id id = e.getValue();
+            if (node.future.isDone() || !cloud.name.equals(id.getCloudName())) continue;
+
+            JCloudsSlaveTemplate template = cloud.getTemplate(id.getTemplateName());
+            if (template != null && template.canProvision(label)) {
+                executors += node.numExecutors;
+            }
+        }
+        return executors;
+    }
+
+    /**
+     * Forecast accuracy per label.
+     */
+    public @Nonnull List<DemandHistory.Accuracy> getAccuracy() {
+        return getHistory().getAccuracy(System.currentTimeMillis(), HORIZON);
+    }
+
+    /**
+     * Labels demanded now or in the past that OpenStack can provision.
+     */
+    private static @Nonnull Collection<Label> getLabels(@Nonnull Jenkins jenkins, @Nonnull DemandHistory history) {
+        Set<Label> candidates = new LinkedHashSet<>();
+        for (Queue.BuildableItem item : jenkins.getQueue().getBuildableItems()) {
+            Label label = item.getAssignedLabel();
+            if (label != null) {
+                candidates.add(label);
+            }
+        }
+        for (String name : history.getLabels()) {
+            Label label = jenkins.getLabel(name);
+            if (label != null) {
+                candidates.add(label);
+            }
+        }
+
+        List<Label> labels = new ArrayList<>(candidates.size());
+        for (Label label : candidates) {
+            for (Cloud c : jenkins.clouds) {
+                if (c instanceof JCloudsCloud && c.canProvision(label)) {
+                    labels.add(label);
+                    break;
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Executors busy or waited for by label.
+     */
+    private static int getDemand(@Nonnull Jenkins jenkins, @Nonnull Label label) {
+        return label.getBusyExecutors() + jenkins.getQueue().countBuildableItemsFor(label);
+    }
+
+    /**
+     * Executors of label available or being provisioned.
+     */
+    private static int getCapacity(@Nonnull Jenkins jenkins, @Nonnull Label label) {
+        int executors = 0;
+        for (Node n : label.getNodes()) {
+            Computer c = n.toComputer();
+            // Slaves taken offline are either broken or about to be deleted
+            if (c != null && !c.isTemporarilyOffline()) {
+                executors += n.getNumExecutors();
+            }
+        }
+        for (Cloud c : jenkins.clouds) {
+            if (c instanceof JCloudsCloud) {
+                executors += ((JCloudsCloud) c).getProvisioningExecutors(label);
+            }
+        }
+        return executors;
+    }
+
+    private synchronized @Nonnull DemandHistory getHistory() {
+        if (history == null) {
+            history = load();
+        }
+        return history;
+    }
+
+    private static @Nonnull DemandHistory load() {
+        XmlFile file = getHistoryFile();
+        if (file != null && file.exists()) {
+            try {
+                Object loaded = file.read();
+                if (loaded instanceof DemandHistory) return (DemandHistory) loaded;
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Unable to load demand history from " + file, ex);
+            }
+        }
+        return new DemandHistory();
+    }
+
+    private void save() {
+        XmlFile file = getHistoryFile();
+        if (file == null) return;
+        try {
+            file.write(getHistory());
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to save demand history to " + file, ex);
+        }
+    }
+
+    private static @CheckForNull XmlFile getHistoryFile() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return null;
+        return new XmlFile(Jenkins.XSTREAM, new File(jenkins.getRootDir(), DemandForecaster.class.getName() + ".xml"));
+    }
+}
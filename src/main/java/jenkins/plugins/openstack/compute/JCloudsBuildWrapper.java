@@ -17,6 +17,7 @@ import java.util.Map;
 
 import javax.annotation.Nonnull;
 
+import jenkins.plugins.openstack.compute.internal.CapacityReservations.Reservation;
 import jenkins.plugins.openstack.compute.internal.NodePlan;
 import jenkins.plugins.openstack.compute.internal.Openstack;
 import jenkins.plugins.openstack.compute.internal.ProvisionPlannedInstancesAndDestroyAllOnError;
@@ -115,7 +116,13 @@ public class JCloudsBuildWrapper extends BuildWrapper {
         }
 
         @Override public Server get() {
-            return template.provision(cloud);
+            // Not limited by instance caps, but make it visible to concurrent provisioning
+            Reservation reservation = cloud.getReservations().forceReserve(template.name);
+            try {
+                return template.provision(cloud);
+            } finally {
+                reservation.release();
+            }
         }
     }
 
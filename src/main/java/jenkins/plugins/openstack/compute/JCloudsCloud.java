@@ -7,12 +7,9 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -33,11 +30,13 @@ import org.jenkinsci.plugins.cloudstats.TrackedPlannedNode;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
 import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
 
 import hudson.Extension;
 import hudson.Util;
@@ -52,8 +51,20 @@ import hudson.util.FormValidation;
 import hudson.util.Secret;
 import hudson.util.StreamTaskListener;
 import jenkins.model.Jenkins;
+import jenkins.plugins.openstack.compute.internal.BootTimes;
+import jenkins.plugins.openstack.compute.internal.CapacityAllocator;
+import jenkins.plugins.openstack.compute.internal.CapacityReservations;
+import jenkins.plugins.openstack.compute.internal.CapacityReservations.Reservation;
+import jenkins.plugins.openstack.compute.internal.CircuitBreaker;
+import jenkins.plugins.openstack.compute.internal.DemandHistory;
+import jenkins.plugins.openstack.compute.internal.HttpTransport;
+import jenkins.plugins.openstack.compute.internal.KeystoneSession;
 import jenkins.plugins.openstack.compute.internal.Openstack;
-import org.openstack4j.model.compute.Server;
+import jenkins.plugins.openstack.compute.internal.ResourceBudget;
+import jenkins.plugins.openstack.compute.internal.Resources;
+import jenkins.plugins.openstack.compute.internal.ServerCounts;
+import jenkins.plugins.openstack.compute.internal.Throttle;
+import jenkins.plugins.openstack.compute.internal.TransferStatistics;
 
 /**
  * The JClouds version of the Jenkins Cloud.
@@ -73,6 +84,23 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
 
     private /*final*/ @Nonnull SlaveOptions slaveOptions;
 
+    private @CheckForNull TemplateSelectionStrategy selectionStrategy;
+
+    // Authenticated client reused for the lifetime of this configuration. Reconfiguration replaces the cloud instance.
+    private transient volatile Openstack openstack;
+
+    // Stop provisioning while OpenStack is not available
+    private transient /*final*/ CircuitBreaker breaker;
+
+    // Capacity claimed by servers being provisioned, shared with the instances this one replaces
+    private transient /*final*/ CapacityReservations reservations;
+
+    // Recent boot times to select templates by
+    private transient /*final*/ BootTimes bootTimes;
+
+    // Templates by name and label
+    private transient /*final*/ TemplateIndex templateIndex;
+
     // Backward compatibility
     private transient @Deprecated Integer instanceCap;
     private transient @Deprecated Integer retentionTime;
@@ -143,6 +171,19 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
 
         this.templates = Collections.unmodifiableList(Objects.firstNonNull(templates, Collections.<JCloudsSlaveTemplate> emptyList()));
         injectReferenceIntoTemplates();
+        initTransients();
+    }
+
+    /**
+     * Strategy to choose templates to provision from, null for default.
+     */
+    @DataBoundSetter
+    public void setSelectionStrategy(@CheckForNull TemplateSelectionStrategy selectionStrategy) {
+        this.selectionStrategy = selectionStrategy;
+    }
+
+    public @Nonnull TemplateSelectionStrategy getSelectionStrategy() {
+        return selectionStrategy == null ? new TemplateSelectionStrategy.ConfigurationOrder() : selectionStrategy;
     }
 
     @SuppressWarnings({"unused", "deprecation"})
@@ -163,6 +204,7 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
         }
 
         injectReferenceIntoTemplates();
+        initTransients();
 
         return this;
     }
@@ -173,6 +215,13 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
         }
     }
 
+    private void initTransients() {
+        breaker = new CircuitBreaker(name);
+        reservations = getReservations(name);
+        bootTimes = new BootTimes();
+        templateIndex = new TemplateIndex(templates);
+    }
+
     public @Nonnull SlaveOptions getEffectiveSlaveOptions() {
         // Make sure only diff of defaults is saved so when defaults will change users are not stuck with outdated config
         return DescriptorImpl.DEFAULTS.override(slaveOptions);
@@ -187,86 +236,211 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
     }
 
     /**
-     * Get a queue of templates to be used to provision slaves of label.
+     * Get an allocator of templates to be used to provision slaves of label.
      *
-     * The queue contains the same template in as many instances as is the number of machines that can be safely
-     * provisioned without violating instanceCap constrain.
+     * The allocator hands out each template as many times as is the number of machines that can be safely
+     * provisioned without violating instanceCap and resource cap constrains.
      */
-    private @CheckForNull Queue<JCloudsSlaveTemplate> getAvailableTemplateProvider(@CheckForNull Label label) {
+    private @Nonnull CapacityAllocator<JCloudsSlaveTemplate> getAvailableTemplateProvider(
+            @CheckForNull Label label, @Nonnull ServerCounts running, @Nonnull ResourceBudget budget
+    ) {
         final String labelString = (label != null) ? label.toString() : "none";
-        final List<Server> runningNodes = getOpenstack().getRunningNodes();
+        final CapacityReservations reserved = getReservations();
         final int globalMax = getEffectiveSlaveOptions().getInstanceCap();
+        final Resources headroom = budget.getHeadroom(getResourceCap()).minus(reserved.getResources());
 
-        final Queue<JCloudsSlaveTemplate> queue = new ConcurrentLinkedDeque<>();
-        int globalCapacity = globalMax - runningNodes.size();
+        int globalCapacity = globalMax - running.getTotal() - reserved.getTotal();
+        final CapacityAllocator<JCloudsSlaveTemplate> allocator = new CapacityAllocator<>(globalCapacity);
         if (globalCapacity <= 0) {
             LOGGER.log(Level.INFO,
                     "Global instance cap ({0}) reached while adding capacity for label: {1}",
                     new Object[] { globalMax, labelString}
             );
-            return queue; // No need to proceed any further;
+            return allocator; // No need to proceed any further;
         }
 
-        final Map<JCloudsSlaveTemplate, Integer> template2capacity = new LinkedHashMap<>();
-        for (JCloudsSlaveTemplate t : templates) {
-            if (t.canProvision(label)) {
-                final int templateMax = t.getEffectiveSlaveOptions().getInstanceCap();
+        for (JCloudsSlaveTemplate t : getTemplateIndex().matching(label)) {
+            final int templateMax = getTemplateCap(t, running, budget);
 
-                int templateCapacity = templateMax;
-                for (Server server : runningNodes) {
-                    if (t.hasProvisioned(server)) {
-                        templateCapacity--;
-                    }
-                }
+            int templateCapacity = templateMax - running.getTemplate(t.name) - reserved.getTemplate(t.name);
+            if (templateCapacity <= 0) {
+                LOGGER.log(Level.INFO,
+                        "Template instance cap for {0} ({1}) reached while adding capacity for label: {2}",
+                        new Object[] { t.name, templateMax, labelString }
+                );
+                continue;
+            }
 
-                if (templateCapacity > 0) {
-                    template2capacity.put(t, templateCapacity);
-                } else {
-                    LOGGER.log(Level.INFO,
-                            "Template instance cap for {0} ({1}) reached while adding capacity for label: {2}",
-                            new Object[] { t.name, templateMax, labelString }
-                    );
-                }
+            int fitting = headroom.count(budget.sizeOf(t.getEffectiveSlaveOptions().getHardwareId()));
+            if (fitting <= 0) {
+                LOGGER.log(Level.INFO,
+                        "Resources left ({0}) do not fit server of template {1} while adding capacity for label: {2}",
+                        new Object[] { headroom, t.name, labelString }
+                );
+                continue;
             }
+
+            allocator.add(t, Math.min(templateCapacity, fitting));
         }
 
-        done: for (Map.Entry<JCloudsSlaveTemplate, Integer> e : template2capacity.entrySet()) {
-            for (int i = e.getValue(); i > 0; i--) {
-                if (globalCapacity > 0) {
-                    queue.add(e.getKey());
-                    globalCapacity--;
-                } else {
-                    LOGGER.log(Level.INFO,
-                            "Global instance cap ({0}) reached while adding capacity for label: {1}",
-                            new Object[] { globalMax, labelString}
-                    );
-                    break done;
-                }
+        return allocator;
+    }
+
+    /**
+     * Servers of template that can run without exceeding its instance cap nor its resource cap.
+     */
+    private int getTemplateCap(
+            @Nonnull JCloudsSlaveTemplate t, @Nonnull ServerCounts running, @Nonnull ResourceBudget budget
+    ) {
+        SlaveOptions opts = t.getEffectiveSlaveOptions();
+        return budget.getTemplateCap(
+                t.name, opts.getInstanceCap(), running.getTemplate(t.name), budget.sizeOf(opts.getHardwareId()),
+                Resources.cap(opts.getVcpuCap(), opts.getRamCap())
+        );
+    }
+
+    private @Nonnull Resources getResourceCap() {
+        SlaveOptions opts = getEffectiveSlaveOptions();
+        return Resources.cap(opts.getVcpuCap(), opts.getRamCap());
+    }
+
+    /**
+     * Resources used by the servers of this cloud weighed against the tenant quota.
+     */
+    private @Nonnull ResourceBudget getResourceBudget() {
+        Openstack os = getOpenstack();
+        return ResourceBudget.of(os.getRunningNodes(), os.getFlavorSizes(), os.getQuotaHeadroom());
+    }
+
+    /**
+     * Executors this cloud can still provision for label.
+     */
+    /*package*/ int getHeadroom(@CheckForNull Label label) {
+        CapacityAllocator<JCloudsSlaveTemplate> templateProvider = getAvailableTemplateProvider(
+                label, getOpenstack().getRunningNodeCounts(), getResourceBudget()
+        );
+        int global = templateProvider.getRemaining();
+        long executors = 0;
+        for (JCloudsSlaveTemplate t : templateProvider.getAvailable()) {
+            int machines = Math.min(templateProvider.getRemaining(t), global);
+            executors += (long) machines * t.getEffectiveSlaveOptions().getNumExecutors();
+            global -= machines;
+        }
+        return (int) Math.min(executors, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Recent time it took servers for label to become active.
+     *
+     * @return Milliseconds of the fastest template, -1 if not known for any.
+     */
+    /*package*/ long getBootTime(@CheckForNull Label label) {
+        BootTimes bootTimes = getBootTimes();
+        long fastest = -1;
+        for (JCloudsSlaveTemplate t : getTemplateIndex().matching(label)) {
+            long time = bootTimes.get(t.name);
+            if (time >= 0 && (fastest < 0 || time < fastest)) {
+                fastest = time;
             }
         }
+        return fastest;
+    }
 
-        return queue;
+    /**
+     * Executors for label on servers being provisioned from this cloud.
+     */
+    /*package*/ int getProvisioningExecutors(@CheckForNull Label label) {
+        CapacityReservations reserved = getReservations();
+        int executors = 0;
+        for (JCloudsSlaveTemplate t : getTemplateIndex().matching(label)) {
+            executors += reserved.getTemplate(t.name) * t.getEffectiveSlaveOptions().getNumExecutors();
+        }
+        return executors;
     }
 
     @Override
     public Collection<NodeProvisioner.PlannedNode> provision(Label label, int excessWorkload) {
-        Queue<JCloudsSlaveTemplate> templateProvider = getAvailableTemplateProvider(label);
+        return provision(label, excessWorkload, true);
+    }
+
+    /**
+     * Provision nodes ahead of the demand on behalf of {@link DemandForecaster} that counts the nodes it has
+     * provisioned already.
+     */
+    /*package*/ @Nonnull Collection<NodeProvisioner.PlannedNode> provisionAhead(@CheckForNull Label label, int excessWorkload) {
+        return provision(label, excessWorkload, false);
+    }
+
+    private @Nonnull Collection<NodeProvisioner.PlannedNode> provision(
+            @CheckForNull Label label, int excessWorkload, boolean countAhead
+    ) {
+        // Leave the workload other clouds are better suited for to them
+        excessWorkload = CloudCoordinator.share(this, label, excessWorkload);
+        if (countAhead) {
+            // Nodes provisioned ahead of the demand are not known to NodeProvisioner until they are online
+            DemandForecaster forecaster = DemandForecaster.get();
+            if (forecaster != null) {
+                excessWorkload -= forecaster.getPendingExecutors(this, label);
+            }
+        }
+        if (excessWorkload <= 0) return Collections.emptyList();
+
+        // Claim the half-open probe only when there is something to provision
+        CircuitBreaker breaker = getCircuitBreaker();
+        if (!breaker.allowRequest()) {
+            LOGGER.log(Level.FINE, "Not provisioning from {0}: {1}", new Object[] {name, breaker});
+            return Collections.emptyList();
+        }
+
+        ServerCounts running = getOpenstack().getRunningNodeCounts();
+        ResourceBudget budget = getResourceBudget();
+        CapacityAllocator<JCloudsSlaveTemplate> templateProvider = getAvailableTemplateProvider(label, running, budget);
+        int globalCap = getEffectiveSlaveOptions().getInstanceCap();
+        Resources headroom = budget.getHeadroom(getResourceCap());
+        TemplateSelectionStrategy strategy = getSelectionStrategy();
+        TemplateSelectionStrategy.Context context = new TemplateSelectionStrategy.Context(
+                this, running, getReservations(), getBootTimes()
+        );
 
         List<PlannedNode> plannedNodeList = new ArrayList<>();
         while (excessWorkload > 0 && !Jenkins.getInstance().isQuietingDown() && !Jenkins.getInstance().isTerminating()) {
 
-            final JCloudsSlaveTemplate template = templateProvider.poll();
-            if (template == null) {
+            List<JCloudsSlaveTemplate> candidates = templateProvider.getAvailable();
+            if (candidates.isEmpty()) {
                 LOGGER.info("Instance cap exceeded on all available templates");
                 break;
             }
 
+            final JCloudsSlaveTemplate template = strategy.select(candidates, context);
+            if (!templateProvider.take(template)) {
+                LOGGER.warning("Strategy " + strategy + " selected template with no capacity: " + template.name);
+                break;
+            }
+
+            // Concurrent planner might have claimed the capacity meanwhile
+            SlaveOptions opts = template.getEffectiveSlaveOptions();
+            Reservation reservation = getReservations().reserve(
+                    template.name, getTemplateCap(template, running, budget), globalCap, running,
+                    budget.sizeOf(opts.getHardwareId()), headroom
+            );
+            if (reservation == null) {
+                LOGGER.fine("Capacity of template " + template.name + " reserved by concurrent provisioning");
+                continue;
+            }
+
             LOGGER.fine("Provisioning slave for " + label + " from template " + template.name);
 
-            int numExecutors = template.getEffectiveSlaveOptions().getNumExecutors();
+            int numExecutors = opts.getNumExecutors();
 
             ProvisioningActivity.Id id = new ProvisioningActivity.Id(this.name, template.name);
-            Future<Node> task = Computer.threadPoolForRemoting.submit(new NodeCallable(this, template, id));
+            Future<Node> task;
+            try {
+                task = Computer.threadPoolForRemoting.submit(new NodeCallable(this, template, id, reservation));
+            } catch (RuntimeException ex) {
+                // Would never be released otherwise
+                reservation.release();
+                throw ex;
+            }
             plannedNodeList.add(new TrackedPlannedNode(id, numExecutors, task));
 
             excessWorkload -= numExecutors;
@@ -279,22 +453,32 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
         private final JCloudsSlaveTemplate template;
         private final ProvisioningActivity.Id id;
         private final SlaveOptions opts;
+        private final Reservation reservation;
 
-        public NodeCallable(JCloudsCloud cloud, JCloudsSlaveTemplate template, ProvisioningActivity.Id id) {
+        public NodeCallable(JCloudsCloud cloud, JCloudsSlaveTemplate template, ProvisioningActivity.Id id, Reservation reservation) {
             this.cloud = cloud;
             this.template = template;
             this.id = id;
             this.opts = template.getEffectiveSlaveOptions();
+            this.reservation = reservation;
         }
 
         @Override
         public Node call() throws Exception {
             // TODO: record the output somewhere
             JCloudsSlave jcloudsSlave;
+            long started = System.currentTimeMillis();
             try {
                 jcloudsSlave = template.provisionSlave(cloud, id, StreamTaskListener.fromStdout());
+                cloud.getBootTimes().record(template.name, System.currentTimeMillis() - started);
             } catch (Openstack.ActionFailed ex) {
+                // Penalize the template as if it timed out not to have it preferred for being fast
+                long elapsed = System.currentTimeMillis() - started;
+                cloud.getBootTimes().record(template.name, Math.max(elapsed, opts.getStartTimeout()));
                 throw new ProvisioningFailedException("Openstack failed to provision the slave", ex);
+            } finally {
+                // The server is either running or failed, no-op if already counted by the inventory
+                reservation.release();
             }
             Jenkins.getInstance().addNode(jcloudsSlave);
 
@@ -355,17 +539,15 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
 
     @Override
     public boolean canProvision(final Label label) {
-        for (JCloudsSlaveTemplate t : templates)
-            if (t.canProvision(label))
-                return true;
-        return false;
+        return !getTemplateIndex().matching(label).isEmpty();
     }
 
     public @CheckForNull JCloudsSlaveTemplate getTemplate(String name) {
-        for (JCloudsSlaveTemplate t : templates)
-            if (t.name.equals(name))
-                return t;
-        return null;
+        return getTemplateIndex().get(name);
+    }
+
+    private @Nonnull TemplateIndex getTemplateIndex() {
+        return templateIndex;
     }
 
     /**
@@ -392,8 +574,8 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
             return;
         }
 
-        List<Server> nodes = getOpenstack().getRunningNodes();
-        final int global = nodes.size();
+        ServerCounts running = getOpenstack().getRunningNodeCounts();
+        final int global = running.getTotal();
 
         Integer globalCap = getEffectiveSlaveOptions().getInstanceCap();
         if (global >= globalCap) {
@@ -402,12 +584,7 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
             return;
         }
 
-        int template = 0;
-        for (Server node : nodes) {
-            if (t.hasProvisioned(node)) {
-                template++;
-            }
-        }
+        int template = running.getTemplate(name);
 
         int templateCap = t.getEffectiveSlaveOptions().getInstanceCap();
         if (template >= templateCap) {
@@ -416,6 +593,17 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
             return;
         }
 
+        ResourceBudget budget = getResourceBudget();
+        Reservation reservation = getReservations().reserve(
+                name, getTemplateCap(t, running, budget), globalCap, running,
+                budget.sizeOf(t.getEffectiveSlaveOptions().getHardwareId()), budget.getHeadroom(getResourceCap())
+        );
+        if (reservation == null) {
+            String msg = String.format("Instance or resource cap of %s is now reached by servers being provisioned", this.name);
+            sendError(msg, req, rsp);
+            return;
+        }
+
         CloudStatistics.ProvisioningListener provisioningListener = CloudStatistics.ProvisioningListener.get();
         ProvisioningActivity.Id id = new ProvisioningActivity.Id(this.name, t.name);
 
@@ -430,6 +618,8 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
             provisioningListener.onFailure(id, ex);
             sendError(ex.getMessage());
             return;
+        } finally {
+            reservation.release();
         }
         Jenkins.getInstance().addNode(node);
         rsp.sendRedirect2(req.getContextPath() + "/computer/" + node.getNodeName());
@@ -437,10 +627,134 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
 
     /**
      * Get connected OpenStack client wrapper.
+     *
+     * The client is authenticated once and shared by all the threads talking to this cloud. Clouds with the same
+     * credentials share the Keystone session.
      */
     @Restricted(DoNotUse.class)
     public @Nonnull Openstack getOpenstack() {
-        return new Openstack(endPointUrl, identity, credential, zone);
+        Openstack os = openstack;
+        if (os == null) {
+            synchronized (this) {
+                os = openstack;
+                if (os == null) {
+                    CircuitBreaker breaker = getCircuitBreaker();
+                    try {
+                        KeystoneSession session = KeystoneSession.get(endPointUrl, identity, credential);
+                        openstack = os = new Openstack(session, zone, breaker, getReservations());
+                    } catch (RuntimeException ex) {
+                        breaker.failure("Authentication failed: " + ex);
+                        throw ex;
+                    }
+                }
+            }
+        }
+        return os;
+    }
+
+    /**
+     * Statistics of connections to the services of this cloud.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public @Nonnull List<HttpTransport.PoolStatistics> getConnectionPoolStatistics() {
+        Openstack os = openstack; // Do not connect just to report
+        if (os == null) return Collections.emptyList();
+        return os.getConnectionPoolStatistics();
+    }
+
+    /**
+     * Breaker that stops provisioning while this cloud does not respond.
+     */
+    public @Nonnull CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    // Reservations by cloud name, held for as long as a cloud instance or a server being provisioned uses them
+    private static final ConcurrentMap<String, CapacityReservations> RESERVATIONS = CacheBuilder.newBuilder()
+            .weakValues().<String, CapacityReservations>build().asMap()
+    ;
+
+    /**
+     * Capacity claimed by servers being provisioned from this cloud.
+     *
+     * Reconfiguration replaces the cloud instance while its servers are still being provisioned so the reservations
+     * are shared by the instances of the same name.
+     */
+    /*package*/ @Nonnull CapacityReservations getReservations() {
+        return reservations;
+    }
+
+    private static @Nonnull CapacityReservations getReservations(@CheckForNull String name) {
+        if (name == null) return new CapacityReservations(); // Not shared as there is nothing to look it up by
+
+        CapacityReservations reservations = RESERVATIONS.get(name);
+        if (reservations == null) {
+            CapacityReservations existing = RESERVATIONS.putIfAbsent(name, reservations = new CapacityReservations());
+            if (existing != null) reservations = existing;
+        }
+        return reservations;
+    }
+
+    /*package*/ @Nonnull BootTimes getBootTimes() {
+        return bootTimes;
+    }
+
+    /**
+     * Bytes received from this cloud per operation.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public @Nonnull List<TransferStatistics.Operation> getTransferStatistics() {
+        Openstack os = openstack; // Do not connect just to report
+        if (os == null) return Collections.emptyList();
+        return os.getTransferStatistics().getOperations();
+    }
+
+    /**
+     * Number of servers of this cloud known to the plugin, -1 if not listed yet.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public int getInventorySize() {
+        Openstack os = openstack; // Do not connect just to report
+        if (os == null) return -1;
+        return os.getInventorySize();
+    }
+
+    /**
+     * Seconds since the servers of this cloud were listed, -1 if not listed yet.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public long getInventoryAge() {
+        Openstack os = openstack; // Do not connect just to report
+        if (os == null) return -1;
+        return os.getInventoryAge();
+    }
+
+    /**
+     * Request rate limits of this cloud and the time requests wait for them.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public @Nonnull List<Throttle> getThrottles() {
+        Openstack os = openstack; // Do not connect just to report
+        if (os == null) return Collections.emptyList();
+        return os.getThrottles();
+    }
+
+    /**
+     * Accuracy of the demand forecast for labels this cloud can provision.
+     */
+    @Restricted(DoNotUse.class) // Jelly
+    public @Nonnull List<DemandHistory.Accuracy> getDemandForecast() {
+        DemandForecaster forecaster = DemandForecaster.get();
+        Jenkins jenkins = Jenkins.getInstance();
+        if (forecaster == null || jenkins == null) return Collections.emptyList();
+
+        List<DemandHistory.Accuracy> accuracy = new ArrayList<>();
+        for (DemandHistory.Accuracy a : forecaster.getAccuracy()) {
+            if (canProvision(jenkins.getLabel(a.getLabel()))) {
+                accuracy.add(a);
+            }
+        }
+        return accuracy;
     }
 
     @Extension
@@ -467,6 +781,11 @@ public class JCloudsCloud extends Cloud implements SlaveOptions.Holder {
             return DEFAULTS;
         }
 
+        @Restricted(DoNotUse.class) // View
+        public List<Descriptor<TemplateSelectionStrategy>> getSelectionStrategies() {
+            return TemplateSelectionStrategy.all();
+        }
+
         @Restricted(DoNotUse.class)
         public FormValidation doTestConnection(
                 @QueryParameter String zone,
@@ -8,6 +8,7 @@ import hudson.slaves.AbstractCloudSlave;
 import hudson.slaves.EnvironmentVariablesNodeProperty;
 import hudson.slaves.NodeProperty;
 import jenkins.plugins.openstack.compute.internal.Openstack;
+import jenkins.plugins.openstack.compute.internal.ServerSnapshot;
 import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
 import org.jenkinsci.plugins.cloudstats.TrackedItem;
 import org.openstack4j.model.compute.Server;
@@ -24,7 +25,7 @@ import java.util.logging.Logger;
 public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
     private static final Logger LOGGER = Logger.getLogger(JCloudsSlave.class.getName());
 
-    private @Nonnull Server metadata;
+    private /*final*/ ServerSnapshot server;
 
     private final @Nonnull String cloudName;
     private /*final*/ @Nonnull SlaveOptions options;
@@ -35,12 +36,19 @@ public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
     private transient @Deprecated String jvmOptions;
     private transient @Deprecated String credentialsId;
     private transient @Deprecated JCloudsCloud.SlaveType slaveType;
+    private transient @Deprecated Server metadata;
 
     public JCloudsSlave(
             @Nonnull ProvisioningActivity.Id id, @Nonnull Server metadata, @Nonnull String labelString, @Nonnull SlaveOptions slaveOptions
+    ) throws IOException, Descriptor.FormException {
+        this(id, ServerSnapshot.of(metadata), labelString, slaveOptions);
+    }
+
+    private JCloudsSlave(
+            @Nonnull ProvisioningActivity.Id id, @Nonnull ServerSnapshot server, @Nonnull String labelString, @Nonnull SlaveOptions slaveOptions
     ) throws IOException, Descriptor.FormException {
         super(
-                metadata.getName(),
+                server.getName(),
                 null,
                 slaveOptions.getFsRoot(),
                 slaveOptions.getNumExecutors(),
@@ -49,13 +57,13 @@ public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
                 null,
                 new JCloudsRetentionStrategy(),
                 Collections.singletonList(new EnvironmentVariablesNodeProperty(
-                        new EnvironmentVariablesNodeProperty.Entry("OPENSTACK_PUBLIC_IP", Openstack.getPublicAddress(metadata))
+                        new EnvironmentVariablesNodeProperty.Entry("OPENSTACK_PUBLIC_IP", server.getPublicAddress())
                 ))
         );
         this.cloudName = id.getCloudName(); // TODO deprecate field
         this.provisioningId = id;
         this.options = slaveOptions;
-        this.metadata = metadata;
+        this.server = server;
         setLauncher(new JCloudsLauncher(getSlaveType().createLauncher(this)));
     }
 
@@ -75,6 +83,13 @@ public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
             slaveType = null;
         }
 
+        if (server == null && metadata != null) {
+            if (metadata.getId() != null) {
+                server = ServerSnapshot.of(metadata);
+            }
+            metadata = null;
+        }
+
         return this;
     }
 
@@ -82,7 +97,14 @@ public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
      * Get public IP address of the server.
      */
     public @CheckForNull String getPublicAddress() {
-        return Openstack.getPublicAddress(metadata);
+        return server == null ? null : server.getPublicAddress();
+    }
+
+    /**
+     * Get the server this slave runs on, null if not known.
+     */
+    public @CheckForNull ServerSnapshot getServer() {
+        return server;
     }
 
     /**
@@ -123,7 +145,11 @@ public class JCloudsSlave extends AbstractCloudSlave implements TrackedItem {
 
     @Override
     protected void _terminate(TaskListener listener) throws IOException, InterruptedException {
+        if (server == null) {
+            LOGGER.warning("Unable to terminate server of " + getNodeName() + ", its details are not known");
+            return;
+        }
         Openstack os = JCloudsCloud.getByName(cloudName).getOpenstack();
-        os.destroyServer(metadata);
+        os.destroyServer(server.toServer());
     }
 }
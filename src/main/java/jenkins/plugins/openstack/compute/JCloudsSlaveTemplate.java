@@ -153,10 +153,6 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
         return label == null || label.matches(labelSet);
     }
 
-    /*package*/ boolean hasProvisioned(@Nonnull Server server) {
-        return name.equals(server.getMetadata().get(OPENSTACK_TEMPLATE_NAME_KEY));
-    }
-
     /**
      * Provision and connect as a slave.
      *
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import hudson.ExtensionPoint;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.model.compute.Address;
+import org.openstack4j.model.compute.Addresses;
+import org.openstack4j.model.compute.Server;
+
+/**
+ * Receive notifications about the lifecycle of servers launched by this Jenkins instance.
+ *
+ * The events are derived from the server listings the plugin performs anyway so listening to them does not add any
+ * requests to OpenStack. Changes are reported once observed by either background inventory refresh or the plugin's
+ * own operations, so they can be delayed by up to the inventory refresh period.
+ *
+ * Listeners are invoked synchronously from the thread that observed the change and are expected to return quickly.
+ *
+ * @author ogondza
+ */
+public abstract class ServerListener implements ExtensionPoint {
+    private static final Logger LOGGER = Logger.getLogger(ServerListener.class.getName());
+
+    /**
+     * Server was booted or found running for the first time.
+     */
+    public void onCreated(@Nonnull Server server) {}
+
+    /**
+     * Server became {@link Server.Status#ACTIVE}.
+     */
+    public void onActive(@Nonnull Server server) {}
+
+    /**
+     * Server got into {@link Server.Status#ERROR}.
+     */
+    public void onError(@Nonnull Server server) {}
+
+    /**
+     * Server is gone.
+     *
+     * @param server Last known state of the server.
+     */
+    public void onDeleted(@Nonnull Server server) {}
+
+    /**
+     * Addresses assigned to the server changed.
+     */
+    public void onAddressChanged(@Nonnull Server server) {}
+
+    public static @Nonnull List<ServerListener> all() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return Collections.emptyList();
+        return jenkins.getExtensionList(ServerListener.class);
+    }
+
+    /**
+     * Notify all listeners about the server state observed.
+     *
+     * @param before Server as known before, null if not known.
+     * @param after Server as observed now, null if gone.
+     */
+    @Restricted(NoExternalUse.class)
+    public static void fireChanged(@CheckForNull Server before, @CheckForNull Server after) {
+        if (before == null && after == null) return;
+
+        for (ServerListener listener : all()) {
+            try {
+                listener.changed(before, after);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Listener " + listener + " failed to process server change", ex);
+            }
+        }
+    }
+
+    /*package*/ void changed(@CheckForNull Server before, @CheckForNull Server after) {
+        if (after == null) {
+            assert before != null;
+            onDeleted(before);
+            return;
+        }
+
+        if (before == null) {
+            onCreated(after);
+        }
+
+        Server.Status status = after.getStatus();
+        if (before == null || before.getStatus() != status) {
+            if (status == Server.Status.ACTIVE) {
+                onActive(after);
+            } else if (status == Server.Status.ERROR) {
+                onError(after);
+            }
+        }
+
+        if (before != null && !addressesOf(before).equals(addressesOf(after))) {
+            onAddressChanged(after);
+        }
+    }
+
+    // Address implementations do not define equality
+    private static @Nonnull Set<String> addressesOf(@Nonnull Server server) {
+        Set<String> ret = new TreeSet<>();
+        Addresses addresses = server.getAddresses();
+        if (addresses == null || addresses.getAddresses() == null) return ret;
+
+        for (Map.Entry<String, List<? extends Address>> network : addresses.getAddresses().entrySet()) {
+            for (Address address : network.getValue()) {
+                ret.add(network.getKey() + ":" + address.getType() + ":" + address.getAddr());
+            }
+        }
+        return ret;
+    }
+}
@@ -43,7 +43,7 @@ import javax.annotation.Nonnull;
  * @author ogondza.
  */
 public class SlaveOptions implements Describable<SlaveOptions> {
-    private static final SlaveOptions EMPTY = new SlaveOptions(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    private static final SlaveOptions EMPTY = new SlaveOptions(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
 
     // Provisioning attributes
     private final @CheckForNull String imageId;
@@ -51,6 +51,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
     private final @CheckForNull String networkId;
     private final @CheckForNull String userDataId;
     private final @CheckForNull Integer instanceCap;
+    private final @CheckForNull Integer vcpuCap;
+    private final @CheckForNull Integer ramCap;
     private final @CheckForNull String floatingIpPool;
     private final @CheckForNull String securityGroups;
     private final @CheckForNull String availabilityZone;
@@ -91,6 +93,20 @@ public class SlaveOptions implements Describable<SlaveOptions> {
         return instanceCap;
     }
 
+    /**
+     * Number of vCPUs the servers can use in total.
+     */
+    public @CheckForNull Integer getVcpuCap() {
+        return vcpuCap;
+    }
+
+    /**
+     * Megabytes of RAM the servers can use in total.
+     */
+    public @CheckForNull Integer getRamCap() {
+        return ramCap;
+    }
+
     public @CheckForNull String getFloatingIpPool() {
         return floatingIpPool;
     }
@@ -138,6 +154,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
                 b.networkId,
                 b.userDataId,
                 b.instanceCap,
+                b.vcpuCap,
+                b.ramCap,
                 b.floatingIpPool,
                 b.securityGroups,
                 b.availabilityZone,
@@ -159,6 +177,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
             String networkId,
             String userDataId,
             Integer instanceCap,
+            Integer vcpuCap,
+            Integer ramCap,
             String floatingIpPool,
             String securityGroups,
             String availabilityZone,
@@ -176,6 +196,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
         this.networkId = Util.fixEmpty(networkId);
         this.userDataId = Util.fixEmpty(userDataId);
         this.instanceCap = instanceCap;
+        this.vcpuCap = vcpuCap;
+        this.ramCap = ramCap;
         this.floatingIpPool = Util.fixEmpty(floatingIpPool);
         this.securityGroups = Util.fixEmpty(securityGroups);
         this.availabilityZone = Util.fixEmpty(availabilityZone);
@@ -199,6 +221,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
                 .networkId(_override(this.networkId, o.networkId))
                 .userDataId(_override(this.userDataId, o.userDataId))
                 .instanceCap(_override(this.instanceCap, o.instanceCap))
+                .vcpuCap(_override(this.vcpuCap, o.vcpuCap))
+                .ramCap(_override(this.ramCap, o.ramCap))
                 .floatingIpPool(_override(this.floatingIpPool, o.floatingIpPool))
                 .securityGroups(_override(this.securityGroups, o.securityGroups))
                 .availabilityZone(_override(this.availabilityZone, o.availabilityZone))
@@ -228,6 +252,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
                 .networkId(_erase(this.networkId, defaults.networkId))
                 .userDataId(_erase(this.userDataId, defaults.userDataId))
                 .instanceCap(_erase(this.instanceCap, defaults.instanceCap))
+                .vcpuCap(_erase(this.vcpuCap, defaults.vcpuCap))
+                .ramCap(_erase(this.ramCap, defaults.ramCap))
                 .floatingIpPool(_erase(this.floatingIpPool, defaults.floatingIpPool))
                 .securityGroups(_erase(this.securityGroups, defaults.securityGroups))
                 .availabilityZone(_erase(this.availabilityZone, defaults.availabilityZone))
@@ -257,6 +283,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
                 .append("networkId", networkId)
                 .append("userDataId", userDataId)
                 .append("instanceCap", instanceCap)
+                .append("vcpuCap", vcpuCap)
+                .append("ramCap", ramCap)
                 .append("floatingIpPool", floatingIpPool)
                 .append("securityGroups", securityGroups)
                 .append("availabilityZone", availabilityZone)
@@ -284,6 +312,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
         if (networkId != null ? !networkId.equals(that.networkId) : that.networkId != null) return false;
         if (userDataId != null ? !userDataId.equals(that.userDataId) : that.userDataId != null) return false;
         if (instanceCap != null ? !instanceCap.equals(that.instanceCap) : that.instanceCap != null) return false;
+        if (vcpuCap != null ? !vcpuCap.equals(that.vcpuCap) : that.vcpuCap != null) return false;
+        if (ramCap != null ? !ramCap.equals(that.ramCap) : that.ramCap != null) return false;
         if (floatingIpPool != null ? !floatingIpPool.equals(that.floatingIpPool) : that.floatingIpPool != null) return false;
         if (securityGroups != null ? !securityGroups.equals(that.securityGroups) : that.securityGroups != null) return false;
         if (availabilityZone != null ? !availabilityZone.equals(that.availabilityZone) : that.availabilityZone != null) return false;
@@ -305,6 +335,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
         result = 31 * result + (networkId != null ? networkId.hashCode() : 0);
         result = 31 * result + (userDataId != null ? userDataId.hashCode() : 0);
         result = 31 * result + (instanceCap != null ? instanceCap.hashCode() : 0);
+        result = 31 * result + (vcpuCap != null ? vcpuCap.hashCode() : 0);
+        result = 31 * result + (ramCap != null ? ramCap.hashCode() : 0);
         result = 31 * result + (floatingIpPool != null ? floatingIpPool.hashCode() : 0);
         result = 31 * result + (securityGroups != null ? securityGroups.hashCode() : 0);
         result = 31 * result + (availabilityZone != null ? availabilityZone.hashCode() : 0);
@@ -329,6 +361,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
                 .networkId(networkId)
                 .userDataId(userDataId)
                 .instanceCap(instanceCap)
+                .vcpuCap(vcpuCap)
+                .ramCap(ramCap)
                 .floatingIpPool(floatingIpPool)
                 .securityGroups(securityGroups)
                 .availabilityZone(availabilityZone)
@@ -357,6 +391,8 @@ public class SlaveOptions implements Describable<SlaveOptions> {
         private @CheckForNull String networkId;
         private @CheckForNull String userDataId;
         private @CheckForNull Integer instanceCap;
+        private @CheckForNull Integer vcpuCap;
+        private @CheckForNull Integer ramCap;
         private @CheckForNull String floatingIpPool;
         private @CheckForNull String securityGroups;
         private @CheckForNull String availabilityZone;
@@ -402,6 +438,16 @@ public class SlaveOptions implements Describable<SlaveOptions> {
             return this;
         }
 
+        public @Nonnull Builder vcpuCap(Integer vcpuCap) {
+            this.vcpuCap = vcpuCap;
+            return this;
+        }
+
+        public @Nonnull Builder ramCap(Integer ramCap) {
+            this.ramCap = ramCap;
+            return this;
+        }
+
         public @Nonnull Builder floatingIpPool(String floatingIpPool) {
             this.floatingIpPool = floatingIpPool;
             return this;
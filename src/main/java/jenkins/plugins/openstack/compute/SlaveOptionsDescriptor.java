@@ -103,6 +103,32 @@ public final class SlaveOptionsDescriptor extends hudson.model.Descriptor<SlaveO
         return FormValidation.validatePositiveInteger(value);
     }
 
+    @Restricted(DoNotUse.class)
+    public FormValidation doCheckVcpuCap(
+            @QueryParameter String value,
+            @RelativePath("../../slaveOptions") @QueryParameter("vcpuCap") String def
+    ) {
+        if (Util.fixEmpty(value) == null) {
+            String d = getDefault(def, opts().getVcpuCap());
+            if (d != null) return FormValidation.ok(def(d));
+            return OK; // Not limited
+        }
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    @Restricted(DoNotUse.class)
+    public FormValidation doCheckRamCap(
+            @QueryParameter String value,
+            @RelativePath("../../slaveOptions") @QueryParameter("ramCap") String def
+    ) {
+        if (Util.fixEmpty(value) == null) {
+            String d = getDefault(def, opts().getRamCap());
+            if (d != null) return FormValidation.ok(def(d));
+            return OK; // Not limited
+        }
+        return FormValidation.validatePositiveInteger(value);
+    }
+
     @Restricted(DoNotUse.class)
     public FormValidation doCheckStartTimeout(
             @QueryParameter String value,
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import hudson.model.Label;
+
+/**
+ * Templates of a cloud by name and by labels they can provision.
+ *
+ * Templates of a cloud never change as reconfiguration replaces the cloud instance, so the index needs no
+ * invalidation while the cloud lives. Labels are held weakly as Jenkins interns them and discards those not used.
+ *
+ * @author ogondza
+ */
+/*package*/ final class TemplateIndex {
+
+    private final @Nonnull List<JCloudsSlaveTemplate> templates;
+    private final @Nonnull Map<String, JCloudsSlaveTemplate> byName = new HashMap<>();
+
+    private final LoadingCache<Label, List<JCloudsSlaveTemplate>> byLabel = CacheBuilder.newBuilder().weakKeys().build(
+            new CacheLoader<Label, List<JCloudsSlaveTemplate>>() {
+                @Override public List<JCloudsSlaveTemplate> load(@Nonnull Label label) {
+                    List<JCloudsSlaveTemplate> matching = new ArrayList<>();
+                    for (JCloudsSlaveTemplate t : templates) {
+                        if (t.canProvision(label)) {
+                            matching.add(t);
+                        }
+                    }
+                    return Collections.unmodifiableList(matching);
+                }
+            }
+    );
+
+    /*package*/ TemplateIndex(@Nonnull List<JCloudsSlaveTemplate> templates) {
+        this.templates = templates;
+        for (JCloudsSlaveTemplate t : templates) {
+            // The first one wins for duplicate names
+            if (!byName.containsKey(t.name)) {
+                byName.put(t.name, t);
+            }
+        }
+    }
+
+    /*package*/ @CheckForNull JCloudsSlaveTemplate get(@CheckForNull String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Templates that can provision the label, in configuration order.
+     *
+     * @param label null matching all templates.
+     */
+    /*package*/ @Nonnull List<JCloudsSlaveTemplate> matching(@CheckForNull Label label) {
+        if (label == null) return templates;
+        return byLabel.getUnchecked(label);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import hudson.Extension;
+import hudson.ExtensionPoint;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import jenkins.model.Jenkins;
+import jenkins.plugins.openstack.compute.internal.BootTimes;
+import jenkins.plugins.openstack.compute.internal.CapacityReservations;
+import jenkins.plugins.openstack.compute.internal.ServerCounts;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Choose the template to provision next slave from.
+ *
+ * Strategy is consulted for every machine provisioned, choosing among the templates that can provision the label and
+ * have capacity left. Instance caps are enforced regardless of the strategy.
+ *
+ * @author ogondza
+ */
+public abstract class TemplateSelectionStrategy extends AbstractDescribableImpl<TemplateSelectionStrategy> implements ExtensionPoint {
+
+    /**
+     * Select template to provision from.
+     *
+     * @param candidates Templates with capacity left, in configuration order. Never empty.
+     * @return One of the candidates.
+     */
+    public abstract @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context);
+
+    /**
+     * Facts about the cloud to base the selection on.
+     */
+    public static final class Context {
+        private final @Nonnull JCloudsCloud cloud;
+        private final @Nonnull ServerCounts running;
+        private final @Nonnull CapacityReservations reserved;
+        private final @Nonnull BootTimes bootTimes;
+
+        @Restricted(NoExternalUse.class)
+        public Context(
+                @Nonnull JCloudsCloud cloud, @Nonnull ServerCounts running, @Nonnull CapacityReservations reserved,
+                @Nonnull BootTimes bootTimes
+        ) {
+            this.cloud = cloud;
+            this.running = running;
+            this.reserved = reserved;
+            this.bootTimes = bootTimes;
+        }
+
+        public @Nonnull JCloudsCloud getCloud() {
+            return cloud;
+        }
+
+        /**
+         * Servers running or being provisioned from the template, including those selected by this provisioning.
+         */
+        public int getLoad(@Nonnull JCloudsSlaveTemplate template) {
+            return running.getTemplate(template.name) + reserved.getTemplate(template.name);
+        }
+
+        /**
+         * Recent time it took servers from the template to become active.
+         *
+         * @return Milliseconds, -1 if not known.
+         */
+        public long getBootTime(@Nonnull JCloudsSlaveTemplate template) {
+            return bootTimes.get(template.name);
+        }
+    }
+
+    public static abstract class StrategyDescriptor extends Descriptor<TemplateSelectionStrategy> {}
+
+    public static @Nonnull List<Descriptor<TemplateSelectionStrategy>> all() {
+        return Jenkins.getInstance().getDescriptorList(TemplateSelectionStrategy.class);
+    }
+
+    /**
+     * Fill the first template up to its cap before moving to the next one.
+     */
+    public static final class ConfigurationOrder extends TemplateSelectionStrategy {
+        @DataBoundConstructor
+        public ConfigurationOrder() {}
+
+        @Override
+        public @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context) {
+            return candidates.get(0);
+        }
+
+        @Extension(ordinal = 100) // Default
+        public static final class DescriptorImpl extends StrategyDescriptor {
+            @Override public String getDisplayName() {
+                return "In configuration order";
+            }
+        }
+    }
+
+    /**
+     * Template with the fewest servers.
+     */
+    public static final class LeastLoaded extends TemplateSelectionStrategy {
+        @DataBoundConstructor
+        public LeastLoaded() {}
+
+        @Override
+        public @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context) {
+            JCloudsSlaveTemplate best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (JCloudsSlaveTemplate t : candidates) {
+                int load = context.getLoad(t);
+                if (load < bestLoad) {
+                    best = t;
+                    bestLoad = load;
+                }
+            }
+            assert best != null;
+            return best;
+        }
+
+        @Extension
+        public static final class DescriptorImpl extends StrategyDescriptor {
+            @Override public String getDisplayName() {
+                return "Least loaded template";
+            }
+        }
+    }
+
+    /**
+     * Rotate the templates.
+     */
+    public static final class RoundRobin extends TemplateSelectionStrategy {
+        private transient AtomicInteger next = new AtomicInteger();
+
+        @DataBoundConstructor
+        public RoundRobin() {}
+
+        private Object readResolve() {
+            next = new AtomicInteger();
+            return this;
+        }
+
+        @Override
+        public @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context) {
+            int i = next.getAndIncrement() & Integer.MAX_VALUE;
+            return candidates.get(i % candidates.size());
+        }
+
+        @Extension
+        public static final class DescriptorImpl extends StrategyDescriptor {
+            @Override public String getDisplayName() {
+                return "Round robin";
+            }
+        }
+    }
+
+    /**
+     * Template from the availability zone with the fewest servers.
+     *
+     * Templates not specifying availability zone are considered to form a zone of their own.
+     */
+    public static final class AvailabilityZoneSpread extends TemplateSelectionStrategy {
+        @DataBoundConstructor
+        public AvailabilityZoneSpread() {}
+
+        @Override
+        public @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context) {
+            // Zone load counts all templates of the cloud, not only those that can provision the label
+            Map<String, Integer> zoneLoad = new HashMap<>();
+            for (JCloudsSlaveTemplate t : context.getCloud().getTemplates()) {
+                String zone = zoneOf(t);
+                Integer load = zoneLoad.get(zone);
+                zoneLoad.put(zone, (load == null ? 0 : load) + context.getLoad(t));
+            }
+
+            JCloudsSlaveTemplate best = null;
+            int bestZoneLoad = Integer.MAX_VALUE;
+            int bestLoad = Integer.MAX_VALUE;
+            for (JCloudsSlaveTemplate t : candidates) {
+                Integer zl = zoneLoad.get(zoneOf(t));
+                int zone = zl == null ? 0 : zl;
+                int load = context.getLoad(t);
+                if (zone < bestZoneLoad || (zone == bestZoneLoad && load < bestLoad)) {
+                    best = t;
+                    bestZoneLoad = zone;
+                    bestLoad = load;
+                }
+            }
+            assert best != null;
+            return best;
+        }
+
+        private static @CheckForNull String zoneOf(@Nonnull JCloudsSlaveTemplate template) {
+            return template.getEffectiveSlaveOptions().getAvailabilityZone();
+        }
+
+        @Extension
+        public static final class DescriptorImpl extends StrategyDescriptor {
+            @Override public String getDisplayName() {
+                return "Spread across availability zones";
+            }
+        }
+    }
+
+    /**
+     * Template whose servers became active the fastest recently.
+     *
+     * Templates with no boot observed yet are preferred so their boot time gets known. Failed boots count as taking
+     * the whole start timeout.
+     */
+    public static final class FastestBoot extends TemplateSelectionStrategy {
+        @DataBoundConstructor
+        public FastestBoot() {}
+
+        @Override
+        public @Nonnull JCloudsSlaveTemplate select(@Nonnull List<JCloudsSlaveTemplate> candidates, @Nonnull Context context) {
+            JCloudsSlaveTemplate best = null;
+            long bestTime = Long.MAX_VALUE;
+            for (JCloudsSlaveTemplate t : candidates) {
+                long time = context.getBootTime(t);
+                if (time < bestTime) {
+                    best = t;
+                    bestTime = time;
+                }
+            }
+            assert best != null;
+            return best;
+        }
+
+        @Extension
+        public static final class DescriptorImpl extends StrategyDescriptor {
+            @Override public String getDisplayName() {
+                return "Lowest recent boot time";
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Recent time it took servers to become active, per template.
+ *
+ * Exponentially weighted so the value follows the current state of the cloud rather than its history.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class BootTimes {
+
+    // Weight of the latest sample
+    private static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, Double> averages = new ConcurrentHashMap<>();
+
+    /**
+     * @param millis Time it took the server to become active.
+     */
+    public void record(@Nonnull String template, long millis) {
+        while (true) {
+            Double current = averages.get(template);
+            if (current == null) {
+                if (averages.putIfAbsent(template, (double) millis) == null) return;
+            } else {
+                double updated = ALPHA * millis + (1 - ALPHA) * current;
+                if (averages.replace(template, current, updated)) return;
+            }
+        }
+    }
+
+    /**
+     * @return Milliseconds, -1 if not known.
+     */
+    public long get(@Nonnull String template) {
+        Double average = averages.get(template);
+        return average == null ? -1 : Math.round(average);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Hand out provisioning slots of candidates with limited capacity under a global limit.
+ *
+ * Remaining capacity is kept per candidate rather than as a slot per machine. By default, candidates are drained in
+ * the order they were added. Other policies can pick among {@link #getAvailable()} and {@link #take(Object)} it.
+ *
+ * Not thread safe, intended to be used by single provisioning pass.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class CapacityAllocator<T> {
+
+    private final List<Slot<T>> slots = new ArrayList<>();
+    private final Map<T, Slot<T>> index = new HashMap<>();
+    private int global;
+    private int cursor = 0;
+
+    /**
+     * @param global Capacity shared by all candidates.
+     */
+    public CapacityAllocator(int global) {
+        this.global = Math.max(0, global);
+    }
+
+    /**
+     * Offer candidate with its own capacity.
+     *
+     * Candidates without capacity are ignored.
+     */
+    public void add(@Nonnull T candidate, int capacity) {
+        if (capacity <= 0) return;
+        if (index.containsKey(candidate)) throw new IllegalArgumentException("Candidate added twice: " + candidate);
+
+        Slot<T> slot = new Slot<>(candidate, capacity);
+        slots.add(slot);
+        index.put(candidate, slot);
+    }
+
+    /**
+     * Take slot from the first candidate with remaining capacity.
+     *
+     * @return null if there is no capacity left.
+     */
+    public @CheckForNull T next() {
+        if (global <= 0) return null;
+
+        while (cursor < slots.size()) {
+            Slot<T> slot = slots.get(cursor);
+            if (slot.remaining > 0) {
+                consume(slot);
+                return slot.candidate;
+            }
+            cursor++;
+        }
+        return null;
+    }
+
+    /**
+     * Take slot from given candidate.
+     *
+     * @return false if it has no capacity left.
+     */
+    public boolean take(@Nonnull T candidate) {
+        Slot<T> slot = index.get(candidate);
+        if (global <= 0 || slot == null || slot.remaining <= 0) return false;
+
+        consume(slot);
+        return true;
+    }
+
+    private void consume(@Nonnull Slot<T> slot) {
+        slot.remaining--;
+        global--;
+    }
+
+    /**
+     * Candidates with remaining capacity, in order they were added.
+     */
+    public @Nonnull List<T> getAvailable() {
+        List<T> available = new ArrayList<>();
+        if (global <= 0) return available;
+
+        for (int i = cursor; i < slots.size(); i++) {
+            Slot<T> slot = slots.get(i);
+            if (slot.remaining > 0) {
+                available.add(slot.candidate);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Slots left for candidate considering the global capacity.
+     */
+    public @Nonnegative int getRemaining(@Nonnull T candidate) {
+        Slot<T> slot = index.get(candidate);
+        return slot == null ? 0 : Math.min(slot.remaining, global);
+    }
+
+    /**
+     * Slots left in total.
+     */
+    public @Nonnegative int getRemaining() {
+        long sum = 0;
+        for (int i = cursor; i < slots.size(); i++) {
+            sum += slots.get(i).remaining;
+        }
+        return (int) Math.min(sum, global);
+    }
+
+    private static final class Slot<T> {
+        private final @Nonnull T candidate;
+        private int remaining;
+
+        private Slot(@Nonnull T candidate, int remaining) {
+            this.candidate = candidate;
+            this.remaining = remaining;
+        }
+    }
+}
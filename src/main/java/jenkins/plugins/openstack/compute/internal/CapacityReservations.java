@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Capacity of a cloud claimed by servers being provisioned.
+ *
+ * Servers being booted are not necessarily known to the server listing yet, so concurrent planners would exceed the
+ * instance caps if they considered only the running servers. Capacity is reserved atomically before provisioning
+ * starts and it is released when the provisioning completes or fails.
+ *
+ * Once the booted server is in the inventory of running servers, its reservation is counted only against the counts
+ * taken before that. Planner holding older counts sees the reservation in place of the server while the one holding
+ * newer counts does not see the server twice.
+ *
+ * Reservations of the same template are interchangeable, so the server reported as booted does not need to be matched
+ * with the exact reservation it was booted for.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class CapacityReservations {
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> templates = new ConcurrentHashMap<>();
+    private final AtomicReference<Resources> resources = new AtomicReference<>(Resources.NONE);
+    // Reservations not released, booted ones are not counted by the counters above
+    private final ConcurrentLinkedQueue<Reservation> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Reserve capacity for single server from template unless it would exceed instance caps.
+     *
+     * @param running Servers running.
+     * @return null if there is no capacity left.
+     */
+    public @CheckForNull Reservation reserve(
+            @Nonnull String template, int templateCap, int globalCap, @Nonnull ServerCounts running
+    ) {
+        return reserve(template, templateCap, globalCap, running, Resources.NONE, Resources.UNLIMITED);
+    }
+
+    /**
+     * Reserve capacity and resources for single server from template unless it would exceed instance caps or the
+     * resources left.
+     *
+     * @param running Servers running.
+     * @param size Resources the server will use.
+     * @param headroom Resources left by the running servers.
+     * @return null if there is no capacity left.
+     */
+    public synchronized @CheckForNull Reservation reserve(
+            @Nonnull String template, int templateCap, int globalCap, @Nonnull ServerCounts running,
+            @Nonnull Resources size, @Nonnull Resources headroom
+    ) {
+        // Servers booted after the counts were taken
+        int bootedTotal = 0;
+        int bootedTemplate = 0;
+        for (Reservation reservation : pending) {
+            if (reservation.state.get() == State.BOOTED && reservation.bootedAt > running.getVersion()) {
+                bootedTotal++;
+                if (reservation.template.equals(template)) {
+                    bootedTemplate++;
+                }
+            }
+        }
+
+        if (!increment(total, globalCap - running.getTotal() - bootedTotal)) return null;
+
+        if (!increment(counter(template), templateCap - running.getTemplate(template) - bootedTemplate)) {
+            total.decrementAndGet();
+            return null;
+        }
+
+        if (!allocate(size, headroom)) {
+            counter(template).decrementAndGet();
+            total.decrementAndGet();
+            return null;
+        }
+
+        return track(new Reservation(template, size));
+    }
+
+    /**
+     * Reserve capacity regardless the caps, for provisioning that is not limited by them.
+     */
+    public synchronized @Nonnull Reservation forceReserve(@Nonnull String template) {
+        total.incrementAndGet();
+        counter(template).incrementAndGet();
+        return track(new Reservation(template, Resources.NONE));
+    }
+
+    private @Nonnull Reservation track(@Nonnull Reservation reservation) {
+        pending.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Server from template was booted and it is counted among the running servers from now on.
+     *
+     * Stop counting capacity and resources reserved for single server of the template, except against counts older
+     * than the server.
+     *
+     * @param version Version of the server inventory with the server in it.
+     */
+    public synchronized void booted(@Nonnull String template, long version) {
+        for (Reservation reservation : pending) {
+            if (reservation.template.equals(template) && reservation.state.compareAndSet(State.RESERVED, State.BOOTED)) {
+                reservation.bootedAt = version;
+                reservation.uncount();
+                return;
+            }
+        }
+    }
+
+    private static boolean increment(@Nonnull AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) return false;
+            if (counter.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private boolean allocate(@Nonnull Resources size, @Nonnull Resources headroom) {
+        if (Resources.NONE.equals(size)) return true;
+
+        while (true) {
+            Resources current = resources.get();
+            Resources updated = current.plus(size);
+            if (!updated.fits(headroom)) return false;
+            if (resources.compareAndSet(current, updated)) return true;
+        }
+    }
+
+    private void free(@Nonnull Resources size) {
+        if (Resources.NONE.equals(size)) return;
+
+        while (true) {
+            Resources current = resources.get();
+            if (resources.compareAndSet(current, current.minus(size))) return;
+        }
+    }
+
+    private @Nonnull AtomicInteger counter(@Nonnull String template) {
+        AtomicInteger counter = templates.get(template);
+        if (counter == null) {
+            AtomicInteger existing = templates.putIfAbsent(template, counter = new AtomicInteger());
+            if (existing != null) counter = existing;
+        }
+        return counter;
+    }
+
+    /**
+     * Servers reserved in total.
+     */
+    public int getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Servers reserved for template.
+     */
+    public int getTemplate(@Nonnull String template) {
+        AtomicInteger counter = templates.get(template);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Resources reserved in total.
+     */
+    public @Nonnull Resources getResources() {
+        return resources.get();
+    }
+
+    /**
+     * Capacity claimed by single server.
+     */
+    public final class Reservation {
+        private final @Nonnull String template;
+        private final @Nonnull Resources size;
+        private final AtomicReference<State> state = new AtomicReference<>(State.RESERVED);
+        // Inventory version the server was booted in, guarded by the enclosing instance
+        private long bootedAt;
+
+        private Reservation(@Nonnull String template, @Nonnull Resources size) {
+            this.template = template;
+            this.size = size;
+        }
+
+        /**
+         * Give the capacity back. Releasing more than once has no effect.
+         */
+        public void release() {
+            synchronized (CapacityReservations.this) {
+                State previous = state.getAndSet(State.RELEASED);
+                if (previous == State.RELEASED) return;
+
+                pending.remove(this);
+                if (previous == State.RESERVED) {
+                    uncount();
+                }
+            }
+        }
+
+        private void uncount() {
+            free(size);
+            counter(template).decrementAndGet();
+            total.decrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            State s = state.get();
+            return "Reservation for " + template + (s == State.RESERVED ? "" : " (" + s.name().toLowerCase() + ")");
+        }
+    }
+
+    private enum State {
+        RESERVED, BOOTED, RELEASED
+    }
+}
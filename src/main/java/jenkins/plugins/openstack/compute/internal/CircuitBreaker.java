@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Stop provisioning from cloud that is not responding.
+ *
+ * Once there is number of consecutive failures or too slow responses, the breaker opens and rejects provisioning
+ * for a while. After that, it lets single attempt through (half-open) and closes if that succeeds.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class CircuitBreaker {
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * Consecutive failures that opens the breaker.
+     */
+    private static final int FAILURE_THRESHOLD = Integer.getInteger(CircuitBreaker.class.getName() + ".failureThreshold", 5);
+
+    /**
+     * Milliseconds the call can take before it is considered failed.
+     */
+    private static final long SLOW_CALL = Long.getLong(CircuitBreaker.class.getName() + ".slowCall", 30000);
+
+    /**
+     * Milliseconds the breaker stays open before letting an attempt through.
+     */
+    private static final long OPEN_TIMEOUT = Long.getLong(CircuitBreaker.class.getName() + ".openTimeout", 60000);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final @Nonnull String name;
+    private final int failureThreshold;
+    private final long slowCall;
+    private final long openTimeout;
+
+    private @Nonnull State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    // When the half-open breaker let the probe through, 0 if there is none outstanding
+    private long probeAt;
+    private @CheckForNull String lastFailure;
+
+    public CircuitBreaker(@Nonnull String name) {
+        this(name, FAILURE_THRESHOLD, SLOW_CALL, OPEN_TIMEOUT);
+    }
+
+    /*package*/ CircuitBreaker(@Nonnull String name, @Nonnegative int failureThreshold, @Nonnegative long slowCall, @Nonnegative long openTimeout) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.slowCall = slowCall;
+        this.openTimeout = openTimeout;
+    }
+
+    /**
+     * Determine whether new work can be started.
+     *
+     * Half-open breaker lets single probe through until its outcome is recorded. Probe that does not report back
+     * within the open timeout is considered lost and another one is permitted.
+     */
+    public synchronized boolean allowRequest() {
+        if (!wouldAllowRequest()) return false;
+
+        if (state == State.OPEN) {
+            LOGGER.log(Level.INFO, "Circuit breaker for {0} half-open, trying again", name);
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            probeAt = System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether {@link #allowRequest()} would let new work start, without claiming the half-open probe.
+     */
+    public synchronized boolean wouldAllowRequest() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return now - openedAt >= openTimeout;
+            case HALF_OPEN:
+                return probeAt == 0 || now - probeAt >= openTimeout;
+            default:
+                throw new AssertionError(state);
+        }
+    }
+
+    /**
+     * Record the call completed.
+     *
+     * @param duration Milliseconds the call took.
+     */
+    public void success(long duration) {
+        if (duration > slowCall) {
+            failure("Call took " + duration + "ms");
+            return;
+        }
+
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                LOGGER.log(Level.INFO, "Circuit breaker for {0} closed", name);
+            }
+            state = State.CLOSED;
+            failures = 0;
+            probeAt = 0;
+        }
+    }
+
+    /**
+     * Record the call failed for reasons suggesting the cloud is not available.
+     */
+    public synchronized void failure(@Nonnull String reason) {
+        lastFailure = reason;
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            LOGGER.log(Level.WARNING, "Circuit breaker for {0} opened after {1} failures: {2}", new Object[] {
+                    name, failures, reason
+            });
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeAt = 0;
+        }
+    }
+
+    public synchronized @Nonnull State getState() {
+        return state;
+    }
+
+    public synchronized @CheckForNull String getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Seconds until the open breaker lets an attempt through.
+     */
+    public synchronized long getRetryIn() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, (openedAt + openTimeout - System.currentTimeMillis()) / 1000);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Circuit breaker for " + name + ": " + state;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Weekly profile of demand per label.
+ *
+ * The week is split into periods of fixed length keeping the peak demand observed in them, weighted exponentially
+ * over the weeks. The demand expected for a period is compared with the actual one once the period is over to
+ * report the accuracy of the forecast.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class DemandHistory {
+
+    /**
+     * Minutes covered by single period of the week.
+     */
+    private static final int PERIOD_MINUTES = Integer.getInteger(DemandHistory.class.getName() + ".periodMinutes", 15);
+
+    private static final int WEEK_MINUTES = 7 * 24 * 60;
+
+    // Weight of the latest week
+    private static final float ALPHA = 0.5f;
+
+    private final int periodMinutes;
+    private final Map<String, Profile> labels = new HashMap<>();
+
+    public DemandHistory() {
+        this(PERIOD_MINUTES);
+    }
+
+    /*package*/ DemandHistory(@Nonnegative int periodMinutes) {
+        this.periodMinutes = Math.max(1, Math.min(WEEK_MINUTES, periodMinutes));
+    }
+
+    private Object readResolve() {
+        // Profiles of different granularity can not be reused
+        return periodMinutes == PERIOD_MINUTES ? this : new DemandHistory();
+    }
+
+    /**
+     * Record executors demanded by label at a time.
+     *
+     * @return true if the demand of some period was concluded.
+     */
+    public synchronized boolean record(long time, @Nonnull String label, @Nonnegative int demand) {
+        Profile profile = labels.get(label);
+        if (profile == null) {
+            profile = new Profile(WEEK_MINUTES / periodMinutes);
+            labels.put(label, profile);
+        }
+
+        int period = periodOf(time);
+        boolean concluded = false;
+        if (period != profile.period) {
+            concluded = profile.conclude();
+            profile.period = period;
+            profile.peak = 0;
+        }
+        profile.peak = Math.max(profile.peak, demand);
+        return concluded;
+    }
+
+    /**
+     * Executors label is expected to demand during the horizon.
+     *
+     * @return 0 if not known.
+     */
+    public synchronized @Nonnegative int forecast(long time, @Nonnull String label, long horizon) {
+        Profile profile = labels.get(label);
+        return profile == null ? 0 : profile.forecast(periodOf(time), periodOf(time + horizon));
+    }
+
+    /**
+     * Forget labels not listed.
+     */
+    public synchronized void retain(@Nonnull Collection<String> retained) {
+        labels.keySet().retainAll(retained);
+    }
+
+    public synchronized @Nonnull List<String> getLabels() {
+        return new ArrayList<>(labels.keySet());
+    }
+
+    /**
+     * Accuracy of the forecast per label.
+     */
+    public synchronized @Nonnull List<Accuracy> getAccuracy(long time, long horizon) {
+        List<Accuracy> accuracy = new ArrayList<>(labels.size());
+        for (Map.Entry<String, Profile> e : labels.entrySet()) {
+            Profile p = e.getValue();
+            int forecast = p.forecast(periodOf(time), periodOf(time + horizon));
+            accuracy.add(new Accuracy(e.getKey(), forecast, p.evaluated, p.errorSum, p.biasSum, p.actualSum));
+        }
+        return accuracy;
+    }
+
+    private int periodOf(long time) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(time + TimeZone.getDefault().getOffset(time));
+        int minuteOfWeek = (int) (minutes % WEEK_MINUTES);
+        return Math.min(minuteOfWeek / periodMinutes, WEEK_MINUTES / periodMinutes - 1);
+    }
+
+    private static final class Profile {
+        // Expected peak demand per period, NaN if not observed yet
+        private final float[] expected;
+        private int period = -1;
+        private int peak;
+
+        private int evaluated;
+        private double errorSum;
+        private double biasSum;
+        private double actualSum;
+
+        private Profile(int periods) {
+            expected = new float[periods];
+            Arrays.fill(expected, Float.NaN);
+        }
+
+        private boolean conclude() {
+            if (period < 0) return false;
+
+            float previous = expected[period];
+            if (Float.isNaN(previous)) {
+                expected[period] = peak;
+            } else {
+                evaluated++;
+                errorSum += Math.abs(previous - peak);
+                biasSum += previous - peak;
+                actualSum += peak;
+                expected[period] = ALPHA * peak + (1 - ALPHA) * previous;
+            }
+            return true;
+        }
+
+        private int forecast(int from, int to) {
+            float max = 0;
+            for (int p = from; ; p = (p + 1) % expected.length) {
+                if (!Float.isNaN(expected[p])) {
+                    max = Math.max(max, expected[p]);
+                }
+                if (p == to) break;
+            }
+            return Math.round(max);
+        }
+    }
+
+    /**
+     * How well the demand was forecast for a label.
+     */
+    public static final class Accuracy {
+        private final @Nonnull String label;
+        private final int forecast;
+        private final int periods;
+        private final double errorSum;
+        private final double biasSum;
+        private final double actualSum;
+
+        private Accuracy(@Nonnull String label, int forecast, int periods, double errorSum, double biasSum, double actualSum) {
+            this.label = label;
+            this.forecast = forecast;
+            this.periods = periods;
+            this.errorSum = errorSum;
+            this.biasSum = biasSum;
+            this.actualSum = actualSum;
+        }
+
+        public @Nonnull String getLabel() {
+            return label;
+        }
+
+        /**
+         * Executors expected to be demanded in near future.
+         */
+        public int getForecast() {
+            return forecast;
+        }
+
+        /**
+         * Periods the forecast was evaluated for.
+         */
+        public int getPeriods() {
+            return periods;
+        }
+
+        /**
+         * Mean absolute difference between expected and actual peak demand.
+         */
+        public double getMeanError() {
+            return mean(errorSum);
+        }
+
+        /**
+         * Mean difference between expected and actual peak demand, positive when overestimated.
+         */
+        public double getBias() {
+            return mean(biasSum);
+        }
+
+        /**
+         * Mean actual peak demand.
+         */
+        public double getMeanDemand() {
+            return mean(actualSum);
+        }
+
+        private double mean(double sum) {
+            if (periods == 0) return 0;
+            return Math.round(sum / periods * 10) / 10.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: forecast %d, mean error %s of %s over %d periods",
+                    label, forecast, getMeanError(), getMeanDemand(), periods
+            );
+        }
+    }
+}
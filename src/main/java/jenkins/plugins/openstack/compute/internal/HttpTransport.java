@@ -0,0 +1,478 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.net.ssl.SSLContext;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.connectors.httpclient.HttpClientConfigInterceptor;
+import org.openstack4j.connectors.httpclient.HttpClientFactory;
+import org.openstack4j.core.transport.Config;
+import org.openstack4j.core.transport.UntrustedSSL;
+
+/**
+ * Persistent connection pool used by openstack4j to talk to all the OpenStack services.
+ *
+ * openstack4j creates single http client for the whole JVM so the pool is shared by all clouds. Connections are pooled
+ * per host so each cloud effectively use its own connections to its own Keystone, Nova, Neutron and Glance.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class HttpTransport {
+
+    /**
+     * Max number of connections to all the hosts.
+     */
+    private static final int MAX_CONNECTIONS = Integer.getInteger(HttpTransport.class.getName() + ".maxConnections", 200);
+
+    /**
+     * Max number of connections to single host (OpenStack service). Size this against the provisioning concurrency.
+     */
+    private static final int MAX_CONNECTIONS_PER_HOST = Integer.getInteger(HttpTransport.class.getName() + ".maxConnectionsPerHost", 20);
+
+    /**
+     * Seconds to keep idle connection alive unless the server says otherwise.
+     */
+    private static final long KEEP_ALIVE = Long.getLong(HttpTransport.class.getName() + ".keepAlive", 60);
+
+    /**
+     * Seconds after which idle connection is closed.
+     */
+    private static final long IDLE_TIMEOUT = Long.getLong(HttpTransport.class.getName() + ".idleTimeout", 30);
+
+    private static volatile @CheckForNull TimedConnectionManager pool;
+
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+
+    private HttpTransport() {}
+
+    /**
+     * Make sure the pool is used by openstack4j. Needs to be called before openstack4j creates its http client.
+     */
+    /*package*/ static void install() {
+        if (!INSTALLED.compareAndSet(false, true)) return;
+
+        HttpClientFactory.registerInterceptor(new HttpClientConfigInterceptor() {
+            @Override
+            public void onClientCreate(HttpClientBuilder client, RequestConfig.Builder request, Config config) {
+                TimedConnectionManager manager = new TimedConnectionManager(socketFactories(config));
+                manager.setMaxTotal(MAX_CONNECTIONS);
+                manager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+                client.setConnectionManager(manager);
+                client.setKeepAliveStrategy(KEEP_ALIVE_STRATEGY);
+                client.addInterceptorFirst(RETRY_AFTER_RESET_INTERCEPTOR);
+                client.addInterceptorLast(RETRY_AFTER_INTERCEPTOR);
+                // Added first to see the entity before it is decompressed
+                client.addInterceptorFirst(METERING_INTERCEPTOR);
+                pool = manager;
+            }
+        });
+    }
+
+    // Connection manager ignores SSL settings of the builder so it needs to be configured here
+    private static Registry<ConnectionSocketFactory> socketFactories(Config config) {
+        SSLConnectionSocketFactory ssl;
+        if (config.isIgnoreSSLVerification()) {
+            ssl = new SSLConnectionSocketFactory(UntrustedSSL.getSSLContext(), SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+        } else {
+            SSLContext context = config.getSslContext();
+            ssl = context == null
+                    ? SSLConnectionSocketFactory.getSocketFactory()
+                    : new SSLConnectionSocketFactory(context)
+            ;
+        }
+
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", ssl)
+                .build()
+        ;
+    }
+
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = new ConnectionKeepAliveStrategy() {
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : TimeUnit.SECONDS.toMillis(KEEP_ALIVE);
+        }
+    };
+
+    // openstack4j performs the request in calling thread so it can pick the header after failure
+    private static final ThreadLocal<Long> RETRY_AFTER = new ThreadLocal<>();
+
+    // Request failing without response must not pick the header received by previous one
+    private static final HttpRequestInterceptor RETRY_AFTER_RESET_INTERCEPTOR = new HttpRequestInterceptor() {
+        @Override
+        public void process(HttpRequest request, HttpContext context) {
+            RETRY_AFTER.remove();
+        }
+    };
+
+    private static final HttpResponseInterceptor RETRY_AFTER_INTERCEPTOR = new HttpResponseInterceptor() {
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+            Header header = response.getFirstHeader("Retry-After");
+            RETRY_AFTER.set(header == null ? null : parseRetryAfter(header.getValue()));
+        }
+    };
+
+    /*package*/ static @CheckForNull Long parseRetryAfter(@Nonnull String value) {
+        value = value.trim();
+        if (value.matches("\\d+")) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        }
+
+        Date date = DateUtils.parseDate(value);
+        if (date == null) return null;
+        return Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
+
+    /**
+     * Milliseconds the server asked to wait with the last response received by current thread, if any.
+     */
+    /*package*/ static @CheckForNull Long getRetryAfter() {
+        return RETRY_AFTER.get();
+    }
+
+    private static final ThreadLocal<Metering> METERING = new ThreadLocal<>();
+
+    /**
+     * Attribute bytes received by current thread to the operation until closed.
+     */
+    /*package*/ static @Nonnull Metering meter(@Nonnull TransferStatistics statistics, @Nonnull String operation) {
+        Metering metering = new Metering(statistics, operation, METERING.get());
+        METERING.set(metering);
+        return metering;
+    }
+
+    /*package*/ static final class Metering implements Closeable {
+        private final @Nonnull TransferStatistics statistics;
+        private final @Nonnull String operation;
+        private final @CheckForNull Metering outer;
+
+        private Metering(@Nonnull TransferStatistics statistics, @Nonnull String operation, @CheckForNull Metering outer) {
+            this.statistics = statistics;
+            this.operation = operation;
+            this.outer = outer;
+        }
+
+        @Override
+        public void close() {
+            if (outer == null) {
+                METERING.remove();
+            } else {
+                METERING.set(outer);
+            }
+        }
+    }
+
+    private static final HttpResponseInterceptor METERING_INTERCEPTOR = new HttpResponseInterceptor() {
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+            Metering metering = METERING.get();
+            HttpEntity entity = response.getEntity();
+            if (metering == null || entity == null) return;
+
+            Header encoding = entity.getContentEncoding();
+            boolean compressed = encoding != null && !"identity".equalsIgnoreCase(encoding.getValue());
+            final TransferStatistics.Operation operation = metering.statistics.response(metering.operation, compressed);
+            response.setEntity(new HttpEntityWrapper(entity) {
+                @Override
+                public InputStream getContent() throws IOException {
+                    return new MeteredStream(super.getContent(), operation);
+                }
+            });
+        }
+    };
+
+    /**
+     * Report bytes to the operation as they are read.
+     *
+     * Responses that are not read till the end or closed are reported as far as they got.
+     */
+    /*package*/ static final class MeteredStream extends FilterInputStream {
+        private final @Nonnull TransferStatistics.Operation operation;
+        private long count;
+
+        /*package*/ MeteredStream(@Nonnull InputStream in, @Nonnull TransferStatistics.Operation operation) {
+            super(in);
+            this.operation = operation;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) received(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) received(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) received(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void received(long bytes) {
+            count += bytes;
+            operation.received(bytes, count);
+        }
+    }
+
+    /**
+     * Get statistics of connections to given hosts.
+     *
+     * @param hosts Host names and ports (host:port) to report.
+     */
+    public static @Nonnull List<PoolStatistics> getStatistics(@Nonnull Collection<String> hosts) {
+        TimedConnectionManager manager = pool;
+        if (manager == null) return Collections.emptyList();
+
+        List<PoolStatistics> stats = new ArrayList<>();
+        for (Map.Entry<HttpRoute, LeaseTimer> e : manager.timers.entrySet()) {
+            HttpRoute route = e.getKey();
+            String host = route.getTargetHost().getHostName() + ":" + route.getTargetHost().getPort();
+            if (!hosts.contains(host)) continue;
+
+            stats.add(new PoolStatistics(host, manager.getStats(route), e.getValue()));
+        }
+        return stats;
+    }
+
+    /**
+     * Snapshot of connection statistics for single host.
+     */
+    public static final class PoolStatistics {
+        private final @Nonnull String host;
+        private final int leased;
+        private final int pending;
+        private final int idle;
+        private final int max;
+        private final long leases;
+        private final long averageWait;
+        private final long maxWait;
+
+        private PoolStatistics(@Nonnull String host, @Nonnull PoolStats stats, @Nonnull LeaseTimer timer) {
+            this.host = host;
+            this.leased = stats.getLeased();
+            this.pending = stats.getPending();
+            this.idle = stats.getAvailable();
+            this.max = stats.getMax();
+            this.leases = timer.leases.get();
+            this.averageWait = leases == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(timer.waited.get() / leases);
+            this.maxWait = TimeUnit.NANOSECONDS.toMillis(timer.maxWait.get());
+        }
+
+        public @Nonnull String getHost() {
+            return host;
+        }
+
+        /**
+         * Connections in use.
+         */
+        public int getLeased() {
+            return leased;
+        }
+
+        /**
+         * Threads waiting for connection.
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * Connections kept alive for reuse.
+         */
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * Number of times the connection was obtained from the pool.
+         */
+        public long getLeases() {
+            return leases;
+        }
+
+        /**
+         * Average time to wait for connection in milliseconds.
+         */
+        public long getAverageWait() {
+            return averageWait;
+        }
+
+        /**
+         * Longest time to wait for connection in milliseconds.
+         */
+        public long getMaxWait() {
+            return maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: leased %d/%d, idle %d, pending %d, leases %d, wait avg %dms max %dms",
+                    host, leased, max, idle, pending, leases, averageWait, maxWait
+            );
+        }
+    }
+
+    private static final class LeaseTimer {
+        private final AtomicLong leases = new AtomicLong();
+        private final AtomicLong waited = new AtomicLong();
+        private final AtomicLong maxWait = new AtomicLong();
+
+        private void record(long nanos) {
+            leases.incrementAndGet();
+            waited.addAndGet(nanos);
+            long max;
+            do {
+                max = maxWait.get();
+            } while (nanos > max && !maxWait.compareAndSet(max, nanos));
+        }
+    }
+
+    /**
+     * Measure time threads wait for connection.
+     */
+    private static final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+        private final ConcurrentMap<HttpRoute, LeaseTimer> timers = new ConcurrentHashMap<>();
+
+        private TimedConnectionManager(Registry<ConnectionSocketFactory> socketFactories) {
+            super(socketFactories);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ConnectionRequest request = super.requestConnection(route, state);
+            LeaseTimer t = timers.get(route);
+            if (t == null) {
+                LeaseTimer existing = timers.putIfAbsent(route, t = new LeaseTimer());
+                if (existing != null) t = existing;
+            }
+            final LeaseTimer timer = t;
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return request.get(timeout, tunit);
+                    } finally {
+                        timer.record(System.nanoTime() - start);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    }
+
+    /**
+     * Close connections that are idle or the server is no longer willing to keep alive.
+     */
+    @Extension @Restricted(NoExternalUse.class)
+    public static final class IdleConnectionEvictor extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.SECONDS.toMillis(IDLE_TIMEOUT);
+        }
+
+        @Override
+        protected void doRun() {
+            TimedConnectionManager manager = pool;
+            if (manager == null) return;
+
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+}
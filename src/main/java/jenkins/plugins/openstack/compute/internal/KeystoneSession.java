@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.util.Secret;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.api.OSClient;
+import org.openstack4j.api.exceptions.AuthenticationException;
+import org.openstack4j.model.compute.ActionResponse;
+import org.openstack4j.model.identity.Access;
+import org.openstack4j.model.identity.Endpoint;
+import org.openstack4j.model.identity.Token;
+import org.openstack4j.openstack.OSFactory;
+
+/**
+ * Authenticated Keystone session to be shared between threads.
+ *
+ * openstack4j binds its session to the thread that authenticated so the {@link OSClient} can not be handed over to other
+ * threads. This keeps the {@link Access} (token and service catalog) instead and binds a client to the calling thread
+ * on demand, without talking to Keystone. Sessions are shared by all clients using the same credentials, regardless of
+ * region. The token is renewed before it expires, either by {@link Refresher} in the background or by the first thread
+ * that needs it. Token Keystone revokes earlier is renewed once a call is rejected with it.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public class KeystoneSession {
+
+    private static final Logger LOGGER = Logger.getLogger(KeystoneSession.class.getName());
+
+    /**
+     * Renew the token when it is about to expire in less than this.
+     */
+    /*package*/ static final long EXPIRATION_MARGIN = TimeUnit.MINUTES.toMillis(
+            Long.getLong(KeystoneSession.class.getName() + ".expirationMargin", 10)
+    );
+
+    static {
+        HttpTransport.install();
+    }
+
+    // Live sessions by credentials. Sessions are held by their users so let them be collected when gone.
+    private static final Cache<String, KeystoneSession> SESSIONS = CacheBuilder.newBuilder().weakValues().build();
+
+    private final @Nonnull String endPointUrl;
+    private final @Nonnull String tenant;
+    private final @Nonnull String username;
+    private final @Nonnull Secret credential;
+
+    private volatile @Nonnull Access access;
+
+    /**
+     * Get session for given credentials, authenticating only when there is none yet.
+     *
+     * Clouds that differ only in region share the token and the service catalog this way.
+     */
+    public static @Nonnull KeystoneSession get(
+            @Nonnull final String endPointUrl, @Nonnull final String identity, @Nonnull final Secret credential
+    ) {
+        String key = endPointUrl + '\n' + identity + '\n' + Util.getDigestOf(credential.getPlainText());
+        try {
+            return SESSIONS.get(key, new Callable<KeystoneSession>() {
+                @Override public KeystoneSession call() {
+                    return new KeystoneSession(endPointUrl, identity, credential);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            // Failures are not cached so next attempt will try again
+            Throwables.propagateIfPossible(ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Authenticate new session.
+     */
+    /*package*/ KeystoneSession(@Nonnull String endPointUrl, @Nonnull String identity, @Nonnull Secret credential) {
+        // TODO refactor to split tenant:username everywhere including UI
+        String[] id = identity.split(":", 2);
+        this.tenant = id.length > 0 ? id[0] : "";
+        this.username = id.length > 1 ? id[1] : "";
+        this.endPointUrl = endPointUrl;
+        this.credential = credential;
+
+        this.access = authenticate();
+    }
+
+    /*package for testing*/ @Nonnull Access authenticate() {
+        OSClient client = OSFactory.builder().endpoint(endPointUrl)
+                .credentials(username, credential.getPlainText())
+                .tenantName(tenant)
+                .authenticate()
+        ;
+        LOGGER.log(Level.FINE, "Authenticated to {0} as {1}", new Object[] {endPointUrl, username});
+        return client.getAccess();
+    }
+
+    /**
+     * Get client bound to current thread.
+     *
+     * The client is valid for current thread until other client is bound to it.
+     */
+    public @Nonnull OSClient bind(@CheckForNull String region) {
+        return OSFactory.clientFromAccess(getAccess()).useRegion(region);
+    }
+
+    /**
+     * Hosts and ports of Keystone and all the services in the catalog.
+     */
+    /*package*/ @Nonnull Set<String> getHosts() {
+        Set<String> hosts = new HashSet<>();
+        hosts.add(hostOf(URI.create(endPointUrl)));
+        for (Access.Service service : access.getServiceCatalog()) {
+            for (Endpoint endpoint : service.getEndpoints()) {
+                URI url = endpoint.getPublicURL();
+                if (url != null) {
+                    hosts.add(hostOf(url));
+                }
+            }
+        }
+        return hosts;
+    }
+
+    private static String hostOf(URI url) {
+        int port = url.getPort();
+        if (port == -1) {
+            port = "https".equals(url.getScheme()) ? 443 : 80;
+        }
+        return url.getHost() + ":" + port;
+    }
+
+    /*package*/ @Nonnull Access getAccess() {
+        if (isExpiring(EXPIRATION_MARGIN)) {
+            refresh();
+        }
+        return access;
+    }
+
+    /**
+     * Reauthenticate unless some other thread has done so already.
+     */
+    /*package*/ synchronized void refresh() {
+        if (!isExpiring(EXPIRATION_MARGIN)) return;
+
+        access = authenticate();
+    }
+
+    /**
+     * Reauthenticate unless some other thread has replaced the rejected access already.
+     */
+    /*package*/ synchronized void invalidate(@Nonnull Access rejected) {
+        if (access != rejected) return;
+
+        LOGGER.log(Level.INFO, "Token rejected before it expired, authenticating {0} again", this);
+        access = authenticate();
+    }
+
+    /**
+     * Wrap the call so it is repeated once with new token when the current one was rejected.
+     *
+     * Keystone can revoke the token before it expires, key rotation or password change does that for instance.
+     */
+    /*package*/ @Nonnull <T> Callable<T> reauthenticating(@Nonnull final Callable<T> call) {
+        return new Callable<T>() {
+            @Override public T call() throws Exception {
+                Access used = getAccess();
+                try {
+                    T result = call.call();
+                    if (!isRejected(result)) return result;
+                } catch (AuthenticationException ex) {
+                    // Repeated below
+                }
+                invalidate(used);
+                return call.call();
+            }
+        };
+    }
+
+    private static boolean isRejected(@CheckForNull Object result) {
+        return result instanceof ActionResponse && ((ActionResponse) result).getCode() == 401;
+    }
+
+    /*package*/ boolean isExpiring(long margin) {
+        Token token = access.getToken();
+        Date expires = token == null ? null : token.getExpires();
+        if (expires == null) return false;
+
+        return expires.getTime() - System.currentTimeMillis() < margin;
+    }
+
+    @Override
+    public String toString() {
+        return "KeystoneSession for " + username + " at " + endPointUrl;
+    }
+
+    /**
+     * Renew tokens of all live sessions in advance so provisioning does not wait for Keystone.
+     */
+    @Extension @Restricted(NoExternalUse.class)
+    public static final class Refresher extends AsyncPeriodicWork {
+
+        public Refresher() {
+            super("OpenStack token refresh");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            for (KeystoneSession session : new ArrayList<>(SESSIONS.asMap().values())) {
+                // Refresh a bit earlier than the threads would so they do not have to
+                if (!session.isExpiring(EXPIRATION_MARGIN + getRecurrencePeriod() * 2)) continue;
+
+                try {
+                    synchronized (session) {
+                        session.access = session.authenticate();
+                    }
+                } catch (RuntimeException ex) {
+                    // The thread that needs the session will try again and report the problem
+                    LOGGER.log(Level.WARNING, "Unable to refresh " + session, ex);
+                }
+            }
+        }
+    }
+}
@@ -23,16 +23,23 @@
  */
 package jenkins.plugins.openstack.compute.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,18 +47,43 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.ExtensionPoint;
 import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
 import hudson.util.FormValidation;
 import org.apache.commons.lang.ObjectUtils;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.openstack4j.api.OSClient;
-import org.openstack4j.api.compute.ComputeFloatingIPService;
+import org.openstack4j.api.compute.ComputeService;
+import org.openstack4j.api.image.ImageService;
+import org.openstack4j.api.networking.NetworkingService;
+import org.openstack4j.api.types.ServiceType;
+import org.openstack4j.core.transport.internal.HttpExecutor;
+import org.openstack4j.core.transport.HttpMethod;
+import org.openstack4j.core.transport.HttpRequest;
+import org.openstack4j.core.transport.HttpResponse;
 import org.openstack4j.api.exceptions.ResponseException;
 import org.openstack4j.model.common.BasicResource;
+import org.openstack4j.model.compute.AbsoluteLimit;
 import org.openstack4j.model.compute.ActionResponse;
 import org.openstack4j.model.compute.Address;
 import org.openstack4j.model.compute.Fault;
@@ -59,13 +91,19 @@ import org.openstack4j.model.compute.Flavor;
 import org.openstack4j.model.compute.FloatingIP;
 import org.openstack4j.model.compute.Keypair;
 import org.openstack4j.model.compute.Server;
+import org.openstack4j.model.compute.ServerCreate;
 import org.openstack4j.model.compute.builder.ServerCreateBuilder;
 import org.openstack4j.model.image.Image;
 import org.openstack4j.model.network.Network;
-import org.openstack4j.openstack.OSFactory;
+import org.openstack4j.openstack.compute.domain.NovaAddresses;
+import org.openstack4j.openstack.compute.domain.NovaServer;
+import org.openstack4j.openstack.internal.OSClientSession;
 
 import hudson.util.Secret;
 import jenkins.model.Jenkins;
+import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
+import jenkins.plugins.openstack.compute.ServerListener;
+import jenkins.util.Timer;
 
 /**
  * Encapsulate {@link OSClient}.
@@ -85,40 +123,199 @@ public class Openstack {
     private static final Logger LOGGER = Logger.getLogger(Openstack.class.getName());
     private static final String FINGERPRINT_KEY = "jenkins-instance";
 
-    private final OSClient client;
+    /**
+     * Seconds to reuse listings of images, flavors, networks, etc. presented in configuration forms.
+     */
+    private static final long LISTING_TTL = Long.getLong(Openstack.class.getName() + ".listingTtl", 60);
+
+    /**
+     * Seconds to reuse absolute limits of the tenant.
+     */
+    private static final long LIMITS_TTL = Long.getLong(Openstack.class.getName() + ".limitsTtl", 60);
+
+    /**
+     * Seconds the inventory of running nodes can be used for before it needs to be refreshed.
+     */
+    private static final long INVENTORY_STALENESS = Long.getLong(Openstack.class.getName() + ".inventoryStaleness", 30);
+
+    /**
+     * Clients to refresh in background.
+     */
+    private static final Cache<Openstack, Boolean> LIVE = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * Servers to request per page when listing the tenant.
+     */
+    private static final int PAGE_SIZE = Integer.getInteger(Openstack.class.getName() + ".pageSize", 500);
+
+    /**
+     * Seconds between server status checks while waiting for it to become active.
+     */
+    private static final long POLL_INTERVAL = Long.getLong(Openstack.class.getName() + ".pollInterval", 2);
+
+    // Either session or client is set. Client is fixed for testing purposes only.
+    private final @CheckForNull KeystoneSession session;
+    private final @CheckForNull String region;
+    private final @CheckForNull OSClient client;
+
+    // Learns about the outages
+    private final @Nonnull CircuitBreaker breaker;
+
+    // Capacity claimed by servers not in the inventory yet
+    private final @Nonnull CapacityReservations reservations;
+
+    // Limit the rate of requests to individual services when configured
+    private final Throttle computeThrottle = Throttle.forService("compute");
+    private final Throttle networkThrottle = Throttle.forService("network");
+    private final Throttle imageThrottle = Throttle.forService("image");
+
+    private final RetryPolicy retry = RetryPolicy.DEFAULT;
+
+    private final TransferStatistics transfers = new TransferStatistics();
+
+    // Identical reads in flight
+    private final SingleFlight<String> reads = new SingleFlight<>();
+
+    // Server-side filtering of our servers
+    private final ServerTags tags = new ServerTags();
+
+    // Our servers as of the last listing
+    private final ServerInventory inventory = new ServerInventory();
 
     public Openstack(@Nonnull String endPointUrl, @Nonnull String identity, @Nonnull Secret credential, @CheckForNull String region) {
-        // TODO refactor to split tenant:username everywhere including UI
-        String[] id = identity.split(":", 2);
-        String tenant = id.length > 0 ? id[0] : "";
-        String username = id.length > 1 ? id[1] : "";
-        client = OSFactory.builder().endpoint(endPointUrl)
-                .credentials(username, credential.getPlainText())
-                .tenantName(tenant)
-                .authenticate()
-                .useRegion(region)
-        ;
+        this(KeystoneSession.get(endPointUrl, identity, credential), region);
         debug("Openstack client created for " + endPointUrl);
     }
 
+    /**
+     * Create client for region reusing existing session.
+     */
+    public Openstack(@Nonnull KeystoneSession session, @CheckForNull String region) {
+        this(session, region, new CircuitBreaker(session.toString()));
+    }
+
+    /**
+     * Create client for region reusing existing session reporting failures to the breaker.
+     */
+    public Openstack(@Nonnull KeystoneSession session, @CheckForNull String region, @Nonnull CircuitBreaker breaker) {
+        this(session, region, breaker, new CapacityReservations());
+    }
+
+    /**
+     * Create client for region reusing existing session reporting failures to the breaker and booted servers to the
+     * reservations.
+     */
+    public Openstack(
+            @Nonnull KeystoneSession session, @CheckForNull String region, @Nonnull CircuitBreaker breaker,
+            @Nonnull CapacityReservations reservations
+    ) {
+        this.session = session;
+        this.region = region;
+        this.client = null;
+        this.breaker = breaker;
+        this.reservations = reservations;
+        LIVE.put(this, Boolean.TRUE);
+    }
+
     /*exposed for testing*/
     public Openstack(@Nonnull OSClient client) {
+        this(client, new CircuitBreaker(client.toString()));
+    }
+
+    /*package for testing*/ Openstack(@Nonnull OSClient client, @Nonnull CircuitBreaker breaker) {
+        this.session = null;
+        this.region = null;
         this.client = client;
+        this.breaker = breaker;
+        this.reservations = new CapacityReservations();
+    }
+
+    /**
+     * Get client bound to current thread.
+     *
+     * This is cheap as it reuses authenticated session so there is no need to hold the client for long. In fact,
+     * it is necessary to call this whenever there is a chance other client was bound to current thread meanwhile.
+     */
+    private @Nonnull OSClient client() {
+        if (client != null) return client;
+        assert session != null;
+        return session.bind(region);
+    }
+
+    // Each of the following is expected to be called once per HTTP request
+
+    private @Nonnull ComputeService compute() {
+        computeThrottle.acquire();
+        REQUEST_STARTED.set(System.currentTimeMillis());
+        return client().compute();
+    }
+
+    private @Nonnull NetworkingService networking() {
+        networkThrottle.acquire();
+        REQUEST_STARTED.set(System.currentTimeMillis());
+        return client().networking();
+    }
+
+    private @Nonnull ImageService images() {
+        imageThrottle.acquire();
+        REQUEST_STARTED.set(System.currentTimeMillis());
+        return client().images();
+    }
+
+    /**
+     * Bytes received per operation.
+     */
+    public @Nonnull TransferStatistics getTransferStatistics() {
+        return transfers;
+    }
+
+    /**
+     * Number of our servers known, -1 if not listed yet.
+     */
+    public int getInventorySize() {
+        return inventory.getAge() < 0 ? -1 : inventory.size();
+    }
+
+    /**
+     * Seconds since our servers were listed, -1 if not listed yet.
+     */
+    public long getInventoryAge() {
+        long age = inventory.getAge();
+        return age < 0 ? -1 : TimeUnit.MILLISECONDS.toSeconds(age);
+    }
+
+    /**
+     * Request rate limits and time spent waiting for them per service.
+     */
+    public @Nonnull List<Throttle> getThrottles() {
+        return Arrays.asList(computeThrottle, networkThrottle, imageThrottle);
     }
 
     public @Nonnull Collection<? extends Network> getSortedNetworks() {
-        List<? extends Network> nets = client.networking().network().list();
-        Collections.sort(nets, RESOURCE_COMPARATOR);
-        return nets;
+        return networks.get();
     }
 
+    private final Supplier<List<? extends Network>> networks = listing("list networks", new Supplier<List<? extends Network>>() {
+        @Override public List<? extends Network> get() {
+            List<? extends Network> nets = networking().network().list();
+            Collections.sort(nets, RESOURCE_COMPARATOR);
+            return Collections.unmodifiableList(nets);
+        }
+    });
+
     public @Nonnull Collection<? extends Image> getSortedImages() {
-        List<? extends Image> images = client.images().listAll();
-        TreeSet set = new TreeSet(RESOURCE_COMPARATOR); // Eliminate duplicate names
-        set.addAll(images);
-        return set;
+        return images.get();
     }
 
+    private final Supplier<Collection<? extends Image>> images = listing("list images", new Supplier<Collection<? extends Image>>() {
+        @Override public Collection<? extends Image> get() {
+            List<? extends Image> images = images().listAll();
+            TreeSet<Image> set = new TreeSet<>(RESOURCE_COMPARATOR); // Eliminate duplicate names
+            set.addAll(images);
+            return Collections.unmodifiableSortedSet(set);
+        }
+    });
+
     private static final Comparator<BasicResource> RESOURCE_COMPARATOR = new Comparator<BasicResource>() {
         @Override
         public int compare(BasicResource o1, BasicResource o2) {
@@ -127,52 +324,418 @@ public class Openstack {
     };
 
     public @Nonnull Collection<? extends Flavor> getSortedFlavors() {
-        List<? extends Flavor> flavors = client.compute().flavors().list();
-        Collections.sort(flavors, FLAVOR_COMPARATOR);
-        return flavors;
+        return flavors.get();
     }
 
-    private Comparator<Flavor> FLAVOR_COMPARATOR = new Comparator<Flavor>() {
+    private final Supplier<List<? extends Flavor>> flavors = listing("list flavors", new Supplier<List<? extends Flavor>>() {
+        @Override public List<? extends Flavor> get() {
+            List<? extends Flavor> flavors = compute().flavors().list();
+            Collections.sort(flavors, FLAVOR_COMPARATOR);
+            return Collections.unmodifiableList(flavors);
+        }
+    });
+
+    private static final Comparator<Flavor> FLAVOR_COMPARATOR = new Comparator<Flavor>() {
         @Override
         public int compare(Flavor o1, Flavor o2) {
             return ObjectUtils.compare(o1.getName(), o2.getName());
         }
     };
 
+    /**
+     * Resources of flavors by their id.
+     *
+     * @return Empty map when flavors can not be listed.
+     */
+    public @Nonnull Map<String, Resources> getFlavorSizes() {
+        Collection<? extends Flavor> flavors;
+        try {
+            flavors = getSortedFlavors();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Unable to list flavors, resource caps will not be enforced", ex);
+            return Collections.emptyMap();
+        }
+
+        Map<String, Resources> sizes = new HashMap<>(flavors.size());
+        for (Flavor flavor : flavors) {
+            sizes.put(flavor.getId(), Resources.of(flavor));
+        }
+        return sizes;
+    }
+
+    /**
+     * Resources the tenant can allocate before exceeding its compute quota.
+     *
+     * Limits are reused for a while so they are not fetched for every provisioning, unless a server was booted since.
+     *
+     * @return null if not known.
+     */
+    public @CheckForNull Resources getQuotaHeadroom() {
+        return quotaHeadroom.get();
+    }
+
+    private volatile Supplier<Resources> quotaHeadroom = quotaHeadroomSupplier();
+
+    /**
+     * Fetch the limits again as the usage has changed.
+     *
+     * Reservations of booted servers are released once they become active, the stale limits would not count them.
+     */
+    private void quotaUsageChanged() {
+        quotaHeadroom = quotaHeadroomSupplier();
+    }
+
+    private Supplier<Resources> quotaHeadroomSupplier() {
+        return Suppliers.memoizeWithExpiration(new Supplier<Resources>() {
+            @Override public Resources get() {
+                try {
+                    AbsoluteLimit limits = invoke("get limits", true, new Callable<AbsoluteLimit>() {
+                        @Override public AbsoluteLimit call() {
+                            return compute().quotaSets().limits().getAbsolute();
+                        }
+                    });
+                    if (limits == null) return null;
+                    return new Resources(
+                            headroom(limits.getMaxTotalCores(), limits.getTotalCoresUsed()),
+                            headroom(limits.getMaxTotalRAMSize(), limits.getTotalRAMUsed())
+                    );
+                } catch (RuntimeException ex) {
+                    // Remembered as unknown until the limits expire
+                    LOGGER.log(Level.WARNING, "Unable to get absolute limits, tenant quota will not be considered", ex);
+                    return null;
+                }
+            }
+        }, LIMITS_TTL, TimeUnit.SECONDS);
+    }
+
+    // Negative maximum is not limited
+    private static long headroom(int max, int used) {
+        return max < 0 ? Long.MAX_VALUE : max - used;
+    }
+
     public @Nonnull List<String> getSortedIpPools() {
-        List<String> names = new ArrayList<>(client.compute().floatingIps().getPoolNames());
-        Collections.sort(names);
-        return names;
+        return ipPools.get();
     }
 
+    private final Supplier<List<String>> ipPools = listing("list floating IP pools", new Supplier<List<String>>() {
+        @Override public List<String> get() {
+            List<String> names = new ArrayList<>(compute().floatingIps().getPoolNames());
+            Collections.sort(names);
+            return Collections.unmodifiableList(names);
+        }
+    });
+
+    /**
+     * Get servers launched by this Jenkins instance.
+     *
+     * Servers are read from inventory refreshed in background. Nova is only contacted when the inventory is older
+     * than configured staleness. Concurrent invocations share single request.
+     */
     public @Nonnull List<Server> getRunningNodes() {
-        List<Server> running = new ArrayList<>();
+        List<Server> running = inventory.getServers(TimeUnit.SECONDS.toMillis(INVENTORY_STALENESS));
+        if (running != null) return running;
+
+        return refreshRunningNodes();
+    }
+
+    /**
+     * Count servers launched by this Jenkins instance in total and per template.
+     *
+     * Counts are maintained along with the inventory so this does not need to inspect the servers.
+     */
+    public @Nonnull ServerCounts getRunningNodeCounts() {
+        ServerCounts counts = inventory.getCounts(TimeUnit.SECONDS.toMillis(INVENTORY_STALENESS));
+        if (counts != null) return counts;
+
+        refreshRunningNodes();
+        return inventory.getCounts();
+    }
+
+    /**
+     * Get servers launched by this Jenkins instance from Nova.
+     */
+    /*package*/ @Nonnull List<Server> refreshRunningNodes() {
+        List<Server> running = reads.call("running-nodes", new Callable<List<Server>>() {
+            @Override public List<Server> call() {
+                return fetchRunningNodes();
+            }
+        });
+        // Shared by all the waiting callers
+        return new ArrayList<>(running);
+    }
+
+    private @Nonnull List<Server> fetchRunningNodes() {
+        long now = System.currentTimeMillis();
+        if (session == null || inventory.isStale(now)) {
+            List<Server> listed = new ArrayList<>();
+            Iterators.addAll(listed, iterateNodes(false));
+            resync(listed, now);
+            return inventory.getServers();
+        }
+
+        // Servers deleted since are reported as well
+        String since = inventory.changesSince();
+        ServerListing listing = new ServerListing(FINGERPRINT_KEY, instanceFingerprint(), null);
+        String marker = null;
+        do {
+            ServerListing.Page page = fetchServerPage(listing, marker, null, since);
+            for (String id: page.deleted) {
+                gone(id);
+            }
+            for (Server server: page.servers) {
+                if (isOurs(server)) {
+                    changed(inventory.update(server));
+                }
+            }
+            marker = page.marker;
+        } while (marker != null);
+        inventory.polled(now);
+
+        return inventory.getServers();
+    }
+
+    // Inventory updates notifying listeners about the changes observed
+
+    private void resync(@Nonnull List<Server> listed, long started) {
+        for (ServerInventory.Change change: inventory.reset(listed, started)) {
+            changed(change);
+        }
+    }
+
+    private void changed(@CheckForNull ServerInventory.Change change) {
+        if (change != null) {
+            ServerListener.fireChanged(change.before, change.after);
+        }
+    }
+
+    private void observed(@Nonnull Server server) {
+        ServerListener.fireChanged(inventory.put(server), server);
+    }
+
+    private void gone(@CheckForNull String id) {
+        Server removed = inventory.remove(id);
+        if (removed != null) {
+            ServerListener.fireChanged(removed, null);
+        }
+    }
+
+    /**
+     * Iterate servers launched by this Jenkins instance requesting the tenant servers page by page.
+     *
+     * Only single page of the listing is held in memory at a time. The pages are requested as the iteration proceeds.
+     * Nova is asked for our servers only when they are known to be tagged.
+     */
+    public @Nonnull Iterator<Server> iterateRunningNodes() {
+        return iterateNodes(true);
+    }
+
+    /**
+     * @param occupiedOnly Skip servers that are stopped, migrating or alike.
+     */
+    private @Nonnull Iterator<Server> iterateNodes(final boolean occupiedOnly) {
+        return new AbstractIterator<Server>() {
+            private final String fingerprint = instanceFingerprint();
+            private final String tag = ServerTags.tagFor(fingerprint);
+            private final boolean filtered = session != null && tags.canFilter();
+            private final long token = tags.listing();
+            private final ServerListing listing = new ServerListing(FINGERPRINT_KEY, fingerprint, session == null ? null : tag);
+            private Iterator<Server> page = Collections.emptyIterator();
+            private String marker = null;
+            private boolean last = false;
+
+            @Override protected Server computeNext() {
+                while (true) {
+                    while (page.hasNext()) {
+                        Server n = page.next();
+                        if ((!occupiedOnly || ServerInventory.isOccupied(n)) && isOurs(n)) return n;
+                    }
+                    if (last) {
+                        if (!filtered) {
+                            tags.listed(token);
+                        }
+                        return endOfData();
+                    }
+
+                    ServerListing.Page next = fetchServerPage(listing, marker, filtered ? tag : null, null);
+                    for (String id: next.untagged) {
+                        tagServer(id, tag);
+                    }
+                    page = next.servers.iterator();
+                    marker = next.marker;
+                    last = marker == null;
+                }
+            }
+        };
+    }
+
+    /**
+     * @param tag Server tag to filter by, null to list all.
+     * @param changesSince ISO 8601 timestamp to list servers changed since, null to list all.
+     */
+    private @Nonnull ServerListing.Page fetchServerPage(
+            @Nonnull final ServerListing listing, @CheckForNull final String marker,
+            @CheckForNull final String tag, @CheckForNull final String changesSince
+    ) {
+        String operation = changesSince == null ? "list servers" : "list changed servers";
+        return invoke(operation, true, new Callable<ServerListing.Page>() {
+            @Override public ServerListing.Page call() throws IOException {
+                if (session != null) return streamServerPage(listing, marker, tag, changesSince);
+
+                // We need details to inspect state and metadata
+                boolean detailed = true;
+                List<Server> servers = new ArrayList<Server>(compute().servers().list(detailed));
+                return new ServerListing.Page(servers, Collections.<String>emptyList(), Collections.<String>emptyList(), null);
+            }
+        });
+    }
+
+    /**
+     * Read page of servers extracting only the fields we need.
+     *
+     * Deserializing all the servers in the tenant just to filter them out is expensive on large tenants.
+     */
+    private @Nonnull ServerListing.Page streamServerPage(
+            @Nonnull ServerListing listing, @CheckForNull String marker,
+            @CheckForNull String tag, @CheckForNull String changesSince
+    ) throws IOException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", PAGE_SIZE);
+        if (marker != null) {
+            params.put("marker", marker);
+        }
+        if (tag != null) {
+            params.put("tags", tag);
+        }
+        if (changesSince != null) {
+            params.put("changes-since", changesSince);
+        }
+        try (HttpResponse response = computeRequest(HttpMethod.GET, "/servers/detail", params)) {
+            return listing.parse(response.getInputStream(), PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Send request to compute API bypassing openstack4j model.
+     *
+     * @return Successful response to be closed by caller.
+     */
+    private @Nonnull HttpResponse computeRequest(
+            @Nonnull HttpMethod method, @Nonnull String path, @Nonnull Map<String, ?> params
+    ) throws IOException {
+        while (true) {
+            OSClientSession os = (OSClientSession) client();
+            HttpRequest.RequestBuilder<Void> request = HttpRequest.builder()
+                    .endpointTokenProvider(os)
+                    .config(os.getConfig())
+                    .serviceType(ServiceType.COMPUTE)
+                    .method(method)
+                    .path(path)
+            ;
+            for (Map.Entry<String, ?> param: params.entrySet()) {
+                request.queryParam(param.getKey(), param.getValue());
+            }
+            tags.negotiate(request);
 
-        // We need details to inspect state and metadata
-        boolean detailed = true;
-        for (Server n: client.compute().servers().list(detailed)) {
-            if (isOccupied(n) && isOurs(n)) {
-                running.add(n);
+            computeThrottle.acquire();
+            REQUEST_STARTED.set(System.currentTimeMillis());
+            HttpResponse response = HttpExecutor.create().execute(request.build());
+            if (!tags.accept(response)) {
+                response.close();
+                continue; // Repeat without microversion
             }
+
+            int status = response.getStatus();
+            if (status >= 400) {
+                String message = response.getStatusMessage();
+                response.close();
+                throw ResponseException.mapException(message, status);
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Tag our server so Nova can list them for us. Failures are tolerated at the cost of listing whole tenant.
+     */
+    private void tagServer(@Nonnull final String id, @Nonnull final String tag) {
+        if (session == null || !tags.isSupported()) return;
+
+        try {
+            invoke("tag server", true, new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    computeRequest(HttpMethod.PUT, "/servers/" + id + "/tags/" + tag, Collections.<String, Object>emptyMap()).close();
+                    return null;
+                }
+            });
+        } catch (RuntimeException ex) {
+            tags.tagFailed(id, ex.toString());
         }
+    }
 
-        return running;
+    /**
+     * List running nodes without blocking the caller.
+     *
+     * @see #getRunningNodes()
+     */
+    public @Nonnull ListenableFuture<List<Server>> getRunningNodesAsync() {
+        return executor().submit(new Callable<List<Server>>() {
+            @Override public List<Server> call() {
+                return getRunningNodes();
+            }
+        });
     }
 
     public @Nonnull List<String> getSortedKeyPairNames() {
-        List<String> keyPairs = new ArrayList<>();
-        for (Keypair kp : client.compute().keypairs().list()) {
-            keyPairs.add(kp.getName());
+        return keyPairNames.get();
+    }
+
+    private final Supplier<List<String>> keyPairNames = listing("list key pairs", new Supplier<List<String>>() {
+        @Override public List<String> get() {
+            List<String> keyPairs = new ArrayList<>();
+            for (Keypair kp : compute().keypairs().list()) {
+                keyPairs.add(kp.getName());
+            }
+            return Collections.unmodifiableList(keyPairs);
         }
-        return keyPairs;
+    });
+
+    /**
+     * Remember the listing for a while so repeated form fills do not fetch it over and over again.
+     *
+     * The lists are shared between callers so they are returned unmodifiable.
+     */
+    private <T> Supplier<T> listing(final String operation, final Supplier<T> supplier) {
+        Supplier<T> retrying = new Supplier<T>() {
+            @Override public T get() {
+                return invoke(operation, true, new Callable<T>() {
+                    @Override public T call() {
+                        return supplier.get();
+                    }
+                });
+            }
+        };
+        return Suppliers.memoizeWithExpiration(retrying, LISTING_TTL, TimeUnit.SECONDS);
     }
 
-    public @CheckForNull String getImageIdFor(String name) {
-        Map<String, String> query = new HashMap<>(2);
+    public @CheckForNull String getImageIdFor(final String name) {
+        // Burst of provisioning resolves the same image over and over again
+        return reads.call("image-id:" + name, new Callable<String>() {
+            @Override public String call() {
+                return fetchImageIdFor(name);
+            }
+        });
+    }
+
+    private @CheckForNull String fetchImageIdFor(String name) {
+        final Map<String, String> query = new HashMap<>(2);
         query.put("name", name);
         query.put("status", "active");
 
-        List<? extends Image> images = client.images().listAll(query);
+        List<? extends Image> images = invoke("list images", true, new Callable<List<? extends Image>>() {
+            @Override public List<? extends Image> call() {
+                return images().listAll(query);
+            }
+        });
         if (images.size() > 0) {
             // Pick one at random to point out failures ASAP
             return images.get(new Random().nextInt(images.size())).getId();
@@ -183,24 +746,6 @@ public class Openstack {
         return null;
     }
 
-    /**
-     * Determine whether the server is considered occupied by openstack plugin.
-     */
-    private static boolean isOccupied(@Nonnull Server server) {
-        switch (server.getStatus()) {
-            case UNKNOWN:
-            case MIGRATING:
-            case SHUTOFF:
-            case DELETED:
-                return false;
-            case UNRECOGNIZED: // needs to be considered occupied not to leak a machine
-                LOGGER.log(Level.WARNING, "Machine state not recognized by openstack4j, report this as a bug: " + server);
-                return true;
-            default:
-                return true;
-        }
-    }
-
     private boolean isOurs(@Nonnull Server server) {
         return instanceFingerprint().equals(server.getMetadata().get(FINGERPRINT_KEY));
     }
@@ -210,16 +755,31 @@ public class Openstack {
      *
      * @return Identifier to filter instances we control.
      */
-    private @Nonnull String instanceFingerprint() {
-        return Jenkins.getInstance().getRootUrl();
+    /*package*/ @Nonnull String instanceFingerprint() {
+        return fingerprints.get();
     }
 
+    // Looked up once in a while rather than for every server inspected
+    private final Supplier<String> fingerprints = Suppliers.memoizeWithExpiration(new Supplier<String>() {
+        @Override public String get() {
+            return Jenkins.getInstance().getRootUrl();
+        }
+    }, 1, TimeUnit.MINUTES);
+
     public @Nonnull Server getServerById(@Nonnull String id) throws NoSuchElementException {
-        Server server = client.compute().servers().get(id);
+        Server server = fetchServer(id);
         if (server == null) throw new NoSuchElementException("No such server running: " + id);
         return server;
     }
 
+    private @CheckForNull Server fetchServer(@Nonnull final String id) {
+        return invoke("get server", true, new Callable<Server>() {
+            @Override public Server call() {
+                return compute().servers().get(id);
+            }
+        });
+    }
+
     /**
      * Provision machine and wait until ready.
      *
@@ -239,8 +799,184 @@ public class Openstack {
 
     @Restricted(NoExternalUse.class) // Test hook
     public Server _bootAndWaitActive(@Nonnull ServerCreateBuilder request, @Nonnegative int timeout) {
-        request.addMetadataItem(FINGERPRINT_KEY, instanceFingerprint());
-        return client.compute().servers().bootAndWaitActive(request.build(), timeout);
+        String fingerprint = instanceFingerprint();
+        request.addMetadataItem(FINGERPRINT_KEY, fingerprint);
+        final ServerCreate create = request.build();
+
+        // Tag as soon as booted not to prevent listing by tag for the whole time the server is starting
+        Server server;
+        tags.bootStarted();
+        try {
+            server = boot(create);
+            booted(server, create);
+            tagServer(server.getId(), ServerTags.tagFor(fingerprint));
+        } finally {
+            tags.bootTagged();
+        }
+        Server active = compute().servers().waitForServerStatus(server.getId(), Server.Status.ACTIVE, timeout, TimeUnit.MILLISECONDS);
+        if (active != null) {
+            observed(active);
+        }
+        return active;
+    }
+
+    /**
+     * Ask Nova to boot the server.
+     *
+     * Accepted request says little about the cloud being able to start the server, so the circuit breaker learns about
+     * the success only once the server is active.
+     */
+    private @Nonnull Server boot(@Nonnull final ServerCreate create) {
+        // Retried only when certainly not performed not to leak servers
+        return invoke("boot server", false, false, new Callable<Server>() {
+            @Override public Server call() {
+                return compute().servers().boot(create);
+            }
+        });
+    }
+
+    /**
+     * Account booted server in the inventory right away so capacity decisions do not have to wait for the next poll.
+     *
+     * Boot response does not describe the server so it is recorded as requested until the poll replaces it. Capacity
+     * reserved for it is not counted against the server counts taken from now on.
+     */
+    private void booted(@Nonnull Server server, @Nonnull ServerCreate request) {
+        NovaServer booted = new NovaServer();
+        booted.id = server.getId();
+        booted.name = request.getName();
+        booted.status = Server.Status.BUILD;
+        booted.addresses = new NovaAddresses();
+        booted.metadata = new HashMap<>(request.getMetaData());
+        if (request.getFlavorRef() != null) {
+            booted.flavor = ServerListing.flavor(request.getFlavorRef());
+        }
+        observed(booted);
+        quotaUsageChanged();
+
+        String template = booted.metadata.get(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY);
+        if (template != null) {
+            reservations.booted(template, inventory.getVersion());
+        }
+    }
+
+    /**
+     * Provision machine without waiting for it to become active.
+     *
+     * @return Future completed once OpenStack accepted the request, failing with {@link ActionFailed} when it did not.
+     */
+    public @Nonnull ListenableFuture<Server> bootAsync(@Nonnull final ServerCreateBuilder request) {
+        return executor().submit(new Callable<Server>() {
+            @Override public Server call() {
+                debug("Booting machine");
+                String fingerprint = instanceFingerprint();
+                request.addMetadataItem(FINGERPRINT_KEY, fingerprint);
+                final ServerCreate create = request.build();
+                tags.bootStarted();
+                try {
+                    Server server = boot(create);
+                    booted(server, create);
+                    tagServer(server.getId(), ServerTags.tagFor(fingerprint));
+                    return server;
+                } catch (ResponseException ex) {
+                    throw new ActionFailed("Boot failed", ex);
+                } finally {
+                    tags.bootTagged();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for booted machine to become active without blocking any thread in the meantime.
+     *
+     * @param timeout Milliseconds to wait.
+     * @return Future completed with active server or failing with {@link ActionFailed} in which case the server is
+     * deleted. The server is deleted as well when the future is cancelled.
+     */
+    public @Nonnull ListenableFuture<Server> waitActiveAsync(@Nonnull Server server, @Nonnegative int timeout) {
+        SettableFuture<Server> result = SettableFuture.create();
+        new ActivePoller(server, System.currentTimeMillis() + timeout, result).start();
+        return result;
+    }
+
+    /**
+     * Provision machine and wait until ready without blocking any thread in the meantime.
+     *
+     * Server booted after the future was cancelled is deleted.
+     *
+     * @see #bootAndWaitActive(ServerCreateBuilder, int)
+     */
+    public @Nonnull ListenableFuture<Server> bootAndWaitActiveAsync(@Nonnull ServerCreateBuilder request, @Nonnegative final int timeout) {
+        // Not chained by Futures.transform as that cancels the boot leaving the server it is about to create behind
+        final SettableFuture<Server> result = SettableFuture.create();
+        Futures.addCallback(bootAsync(request), new FutureCallback<Server>() {
+            @Override public void onSuccess(Server server) {
+                new ActivePoller(server, System.currentTimeMillis() + timeout, result).start();
+            }
+
+            @Override public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Check server status periodically. The threads are not blocked in between the checks.
+     */
+    private final class ActivePoller implements Runnable {
+        private final @Nonnull SettableFuture<Server> result;
+        private final @Nonnull Server server;
+        private final long deadline;
+
+        private ActivePoller(@Nonnull Server server, long deadline, @Nonnull SettableFuture<Server> result) {
+            this.server = server;
+            this.deadline = deadline;
+            this.result = result;
+        }
+
+        private void start() {
+            // Nobody is going to use the server once cancelled
+            result.addListener(new Runnable() {
+                @Override public void run() {
+                    if (!result.isCancelled()) return;
+                    try {
+                        destroyServer(server);
+                    } catch (ActionFailed ex) {
+                        LOGGER.log(Level.WARNING, "Unable to destroy server no longer waited for: " + server.getName(), ex);
+                    }
+                }
+            }, executor());
+            executor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) return; // Cancelled
+
+            try {
+                Server current = fetchServer(server.getId());
+                if (current == null) throw new ActionFailed("Server deleted while booting: " + server.getName());
+
+                Server.Status status = current.getStatus();
+                if (status == Server.Status.BUILD && System.currentTimeMillis() < deadline) {
+                    timer().schedule(new Runnable() {
+                        @Override public void run() {
+                            executor().execute(ActivePoller.this);
+                        }
+                    }, POLL_INTERVAL, TimeUnit.SECONDS);
+                    return;
+                }
+
+                debug("Machine started: " + current.getName());
+                observed(current);
+                throwIfFailed(current);
+                result.set(current);
+            } catch (Throwable ex) {
+                result.setException(ex);
+            }
+        }
     }
 
     /**
@@ -255,43 +991,55 @@ public class Openstack {
      *
      * @throws ActionFailed Openstack was not able to destroy the server.
      */
-    public void destroyServer(@Nonnull Server server) throws ActionFailed {
+    public void destroyServer(@Nonnull final Server server) throws ActionFailed {
         debug("Destroying machine " + server.getName());
         ActionResponse res;
 
         // Retry deletion a couple of times: https://github.com/jenkinsci/openstack-cloud-plugin/issues/55
-        Server deleted = null;
-        for (int i = 0; i < 5; i++) {
+        RetryPolicy.Backoff backoff = retry.backoff();
+        Server deleted;
+        while (true) {
             // Not checking fingerprint here presuming all Servers provided by this implementation are ours.
-            deleted = client.compute().servers().get(server.getId());
+            deleted = fetchServer(server.getId());
             if (deleted == null || deleted.getStatus() == Server.Status.DELETED) break;
 
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                break;
-            }
+            if (!backoff.await("delete server", "Server still exists: " + deleted)) break;
 
-            res = client.compute().servers().delete(server.getId());
+            res = invoke("delete server", true, new Callable<ActionResponse>() {
+                @Override public ActionResponse call() {
+                    return compute().servers().delete(server.getId());
+                }
+            });
             throwIfFailed(res);
         }
 
+        if (deleted == null || deleted.getStatus() == Server.Status.DELETED) {
+            gone(server.getId());
+        }
         if (deleted == null) {
             debug("Machine destroyed: " + server.getName());
         } else {
             LOGGER.warning("Server deletion attempt failed: " + deleted);
         }
 
-        ComputeFloatingIPService fips = client.compute().floatingIps();
-        for (FloatingIP ip: fips.list()) {
+        List<? extends FloatingIP> ips = invoke("list floating IPs", true, new Callable<List<? extends FloatingIP>>() {
+            @Override public List<? extends FloatingIP> call() {
+                return compute().floatingIps().list();
+            }
+        });
+        for (final FloatingIP ip: ips) {
             if (server.getId().equals(ip.getInstanceId())) {
-                String fip = ip.getFloatingIpAddress();
+                final String fip = ip.getFloatingIpAddress();
                 debug("Removing floating IP {} of {}", fip, server.getName());
-                res = fips.removeFloatingIP(server, fip);
+                res = invoke("remove floating IP", true, new Callable<ActionResponse>() {
+                    @Override public ActionResponse call() {
+                        return compute().floatingIps().removeFloatingIP(server, fip);
+                    }
+                });
                 if (logIfFailed(res)) {
                     debug("Floating IP removed: " + fip);
                 }
-                res = fips.deallocateIP(ip.getId());
+                res = deallocateIp(ip);
                 if (logIfFailed(res)) {
                     debug("Floating IP deallocated: " + fip);
                 }
@@ -299,6 +1047,41 @@ public class Openstack {
         }
     }
 
+    private @Nonnull ActionResponse deallocateIp(@Nonnull final FloatingIP ip) {
+        return invoke("deallocate floating IP", true, new Callable<ActionResponse>() {
+            @Override public ActionResponse call() {
+                return compute().floatingIps().deallocateIP(ip.getId());
+            }
+        });
+    }
+
+    /**
+     * Destroy the server without blocking the caller.
+     *
+     * @see #destroyServer(Server)
+     */
+    public @Nonnull ListenableFuture<Void> destroyServerAsync(@Nonnull final Server server) {
+        return executor().submit(new Callable<Void>() {
+            @Override public Void call() {
+                destroyServer(server);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Assign floating ip address to the server without blocking the caller.
+     *
+     * @see #assignFloatingIp(Server, String)
+     */
+    public @Nonnull ListenableFuture<FloatingIP> assignFloatingIpAsync(@Nonnull final Server server, @CheckForNull final String poolName) {
+        return executor().submit(new Callable<FloatingIP>() {
+            @Override public FloatingIP call() {
+                return assignFloatingIp(server, poolName);
+            }
+        });
+    }
+
     /**
      * Assign floating ip address to the server.
      *
@@ -307,19 +1090,26 @@ public class Openstack {
      * @param server Server to assign FIP
      * @param poolName Name of the FIP pool to use. If null, openstack default pool will be used.
      */
-    public @Nonnull FloatingIP assignFloatingIp(@Nonnull Server server, @CheckForNull String poolName) throws ActionFailed {
+    public @Nonnull FloatingIP assignFloatingIp(@Nonnull final Server server, @CheckForNull final String poolName) throws ActionFailed {
         debug("Allocating floating IP for " + server.getName());
-        ComputeFloatingIPService fips = client.compute().floatingIps();
-        FloatingIP ip;
+        final FloatingIP ip;
         try {
-            ip = fips.allocateIP(poolName);
+            ip = invoke("allocate floating IP", false, new Callable<FloatingIP>() {
+                @Override public FloatingIP call() {
+                    return compute().floatingIps().allocateIP(poolName);
+                }
+            });
         } catch (ResponseException ex) {
             throw new ActionFailed("Failed to allocate IP for " + server.getName(), ex);
         }
         debug("Floating IP allocated " + ip.getFloatingIpAddress());
         try {
             debug("Assigning floating IP to " + server.getName());
-            ActionResponse res = fips.addFloatingIP(server, ip.getFloatingIpAddress());
+            ActionResponse res = invoke("assign floating IP", true, new Callable<ActionResponse>() {
+                @Override public ActionResponse call() {
+                    return compute().floatingIps().addFloatingIP(server, ip.getFloatingIpAddress());
+                }
+            });
             throwIfFailed(res);
             debug("Floating IP assigned");
         } catch (Throwable _ex) {
@@ -328,7 +1118,7 @@ public class Openstack {
                     : new ActionFailed("Unable to assign floating IP for " + server.getName(), _ex)
             ;
 
-            ActionResponse res = fips.deallocateIP(ip.getId());
+            ActionResponse res = deallocateIp(ip);
             logIfFailed(res);
             throw ex;
         }
@@ -373,7 +1163,11 @@ public class Openstack {
 
     private void throwIfFailed(@Nonnull Server server) {
         Server.Status status = server.getStatus();
-        if (status == Server.Status.ACTIVE) return; // Success
+        if (status == Server.Status.ACTIVE) {
+            // The time it took is not a response time of a call
+            breaker.success(0);
+            return;
+        }
 
         StringBuilder sb = new StringBuilder();
         sb.append("Failed to boot server ").append(server.getName());
@@ -392,6 +1186,9 @@ public class Openstack {
         ;
         sb.append(" fault=").append(msg);
 
+        // Cloud not able to bring servers up is not worth provisioning from
+        breaker.failure(sb.toString());
+
         // Destroy the server
         ActionFailed ex = new ActionFailed(sb.toString());
         try {
@@ -403,6 +1200,14 @@ public class Openstack {
         throw ex;
     }
 
+    /**
+     * Statistics of the http connections to the services used by this client.
+     */
+    public @Nonnull List<HttpTransport.PoolStatistics> getConnectionPoolStatistics() {
+        if (session == null) return Collections.emptyList();
+        return HttpTransport.getStatistics(session.getHosts());
+    }
+
     /**
      * Perform some tests before calling the connection successfully established.
      */
@@ -410,9 +1215,9 @@ public class Openstack {
         // Try to talk to all endpoints the plugin rely on so we know they exist, are enabled, user have permission to
         // access them and JVM trusts their SSL cert.
         try {
-            client.networking().network().get("");
-            client.images().listMembers("");
-            client.compute().listExtensions().size();
+            networking().network().get("");
+            images().listMembers("");
+            compute().listExtensions().size();
         } catch (Throwable ex) {
             return ex;
         }
@@ -429,6 +1234,93 @@ public class Openstack {
         }
     }
 
+    /**
+     * Refresh inventories of running nodes and tenant limits in use so provisioning decisions do not wait for Nova.
+     */
+    @Extension @Restricted(NoExternalUse.class)
+    public static final class InventoryRefresher extends AsyncPeriodicWork {
+
+        /**
+         * Stop refreshing inventory not read for this many milliseconds.
+         */
+        private static final long IDLE_TIMEOUT = 10 * MIN;
+
+        public InventoryRefresher() {
+            super("OpenStack inventory refresh");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            // Refresh before the request path finds the inventory stale
+            return Math.max(1000, TimeUnit.SECONDS.toMillis(INVENTORY_STALENESS) / 2);
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            for (Openstack os : new ArrayList<>(LIVE.asMap().keySet())) {
+                long idle = os.inventory.getIdleTime();
+                if (idle < 0 || idle > IDLE_TIMEOUT) continue;
+
+                try {
+                    os.refreshRunningNodes();
+                } catch (RuntimeException ex) {
+                    // Request path will try again and report the problem
+                    LOGGER.log(Level.WARNING, "Unable to refresh running nodes", ex);
+                }
+                os.getQuotaHeadroom(); // Fetched once expired
+            }
+        }
+    }
+
+    // When the last request of current thread was sent, after throttling
+    private static final ThreadLocal<Long> REQUEST_STARTED = new ThreadLocal<>();
+
+    /**
+     * Perform the call with retries, reporting the outcome to the circuit breaker.
+     *
+     * Only the duration of the final attempt is reported, time spent in backoff or throttled is not a sign of slow cloud.
+     */
+    private <T> T invoke(@Nonnull String operation, boolean idempotent, @Nonnull Callable<T> call) {
+        return invoke(operation, idempotent, true, call);
+    }
+
+    /**
+     * @param reportSuccess Report successful call to the circuit breaker, failures are reported always.
+     */
+    private <T> T invoke(@Nonnull String operation, boolean idempotent, boolean reportSuccess, @Nonnull Callable<T> call) {
+        REQUEST_STARTED.set(System.currentTimeMillis());
+        try (HttpTransport.Metering metering = HttpTransport.meter(transfers, operation)) {
+            T ret = retry.call(operation, idempotent, session == null ? call : session.reauthenticating(call));
+            if (reportSuccess) {
+                breaker.success(requestDuration());
+            }
+            return ret;
+        } catch (RuntimeException ex) {
+            // Failures caused by the request itself say nothing about cloud availability
+            if (RetryPolicy.isRetryable(ex, true)) {
+                breaker.failure(operation + ": " + ex);
+            } else if (reportSuccess) {
+                breaker.success(requestDuration());
+            }
+            throw ex;
+        } finally {
+            REQUEST_STARTED.remove();
+        }
+    }
+
+    private static long requestDuration() {
+        return System.currentTimeMillis() - REQUEST_STARTED.get();
+    }
+
+    // Async operations are run on remoting pool while waiting is delegated to Timer, replaced in tests
+    /*package*/ @Nonnull ListeningExecutorService executor() {
+        return MoreExecutors.listeningDecorator(Computer.threadPoolForRemoting);
+    }
+
+    /*package*/ @Nonnull ScheduledExecutorService timer() {
+        return Timer.get();
+    }
+
     private static void debug(@Nonnull String msg, @Nonnull String... args) {
         LOGGER.log(Level.FINE, msg, args);
     }
@@ -451,6 +1343,18 @@ public class Openstack {
 
     @Extension
     public static final class Factory extends FactoryEP {
+
+        /**
+         * Seconds to keep authenticated clients for configuration forms.
+         */
+        private static final long CLIENT_TTL = Long.getLong(Openstack.class.getName() + ".clientTtl", 300);
+
+        // Config page with several templates fills dozens of fields each asking for a client
+        private final Cache<String, Openstack> cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(CLIENT_TTL, TimeUnit.SECONDS)
+                .build()
+        ;
+
         protected @Nonnull Openstack getOpenstack(String endPointUrl, String identity, String credential, @CheckForNull String region) throws FormValidation {
             endPointUrl = Util.fixEmptyAndTrim(endPointUrl);
             identity = Util.fixEmptyAndTrim(identity);
@@ -461,7 +1365,20 @@ public class Openstack {
                 throw FormValidation.error("Invalid parameters");
             }
 
-            return new Openstack(endPointUrl, identity, Secret.fromString(credential), region);
+            final String ep = endPointUrl, id = identity, c = credential, r = region;
+            // Do not keep plaintext credential around
+            String key = endPointUrl + '\n' + identity + '\n' + Util.getDigestOf(credential) + '\n' + region;
+            try {
+                return cache.get(key, new Callable<Openstack>() {
+                    @Override public Openstack call() {
+                        return new Openstack(ep, id, Secret.fromString(c), r);
+                    }
+                });
+            } catch (ExecutionException | UncheckedExecutionException ex) {
+                // Failures are not cached so next attempt will try again
+                Throwables.propagateIfPossible(ex.getCause());
+                throw new RuntimeException(ex.getCause());
+            }
         }
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.model.compute.Server;
+
+/**
+ * Resources used by running servers weighed against the caps and the tenant quota.
+ *
+ * Servers of flavors that are not known are considered to use no resources, and so are the templates. Caps can not be
+ * enforced for them.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class ResourceBudget {
+
+    private final @Nonnull Map<String, Resources> flavors;
+    private final @Nonnull Resources used;
+    private final @Nonnull Map<String, Resources> templates;
+    private final @Nonnull Resources quota;
+
+    /*package*/ ResourceBudget(
+            @Nonnull Map<String, Resources> flavors, @Nonnull Resources used, @Nonnull Map<String, Resources> templates,
+            @Nonnull Resources quota
+    ) {
+        this.flavors = flavors;
+        this.used = used;
+        this.templates = Collections.unmodifiableMap(templates);
+        this.quota = quota;
+    }
+
+    /**
+     * @param running Servers running.
+     * @param flavors Flavor sizes by id.
+     * @param quota Resources left in tenant quota, null if not known.
+     */
+    public static @Nonnull ResourceBudget of(
+            @Nonnull Collection<? extends Server> running, @Nonnull Map<String, Resources> flavors,
+            @CheckForNull Resources quota
+    ) {
+        Resources used = Resources.NONE;
+        Map<String, Resources> templates = new HashMap<>();
+        for (Server server : running) {
+            Resources size = flavors.get(server.getFlavorId());
+            if (size == null) continue;
+
+            used = used.plus(size);
+            String template = ServerCounts.templateOf(server);
+            if (template != null) {
+                Resources t = templates.get(template);
+                templates.put(template, t == null ? size : t.plus(size));
+            }
+        }
+        return new ResourceBudget(flavors, used, templates, quota == null ? Resources.UNLIMITED : quota);
+    }
+
+    /**
+     * Resources the server of a flavor will use.
+     */
+    public @Nonnull Resources sizeOf(@CheckForNull String flavorId) {
+        Resources size = flavors.get(flavorId);
+        return size == null ? Resources.NONE : size;
+    }
+
+    /**
+     * Resources used by running servers.
+     */
+    public @Nonnull Resources getUsed() {
+        return used;
+    }
+
+    /**
+     * Resources used by running servers of template.
+     */
+    public @Nonnull Resources getUsed(@Nonnull String template) {
+        Resources t = templates.get(template);
+        return t == null ? Resources.NONE : t;
+    }
+
+    /**
+     * Resources that can be allocated without exceeding the cap nor the tenant quota.
+     *
+     * @param cap Cap of resources used by running servers.
+     */
+    public @Nonnull Resources getHeadroom(@Nonnull Resources cap) {
+        return cap.minus(used).min(quota);
+    }
+
+    /**
+     * Number of servers template can run without exceeding its own resource cap.
+     *
+     * @param instanceCap Cap of servers of the template.
+     * @param running Servers of the template running.
+     * @param size Resources of single server of the template.
+     * @param cap Cap of resources used by servers of the template.
+     */
+    public @Nonnegative int getTemplateCap(
+            @Nonnull String template, int instanceCap, int running, @Nonnull Resources size, @Nonnull Resources cap
+    ) {
+        long room = cap.minus(getUsed(template)).count(size);
+        return (int) Math.max(0, Math.min(instanceCap, running + room));
+    }
+
+    @Override
+    public String toString() {
+        return "Used " + used + ", quota left " + quota;
+    }
+}
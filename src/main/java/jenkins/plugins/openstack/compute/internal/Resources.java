@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.model.compute.Flavor;
+
+/**
+ * Amount of vCPUs and RAM.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class Resources {
+
+    public static final Resources NONE = new Resources(0, 0);
+    public static final Resources UNLIMITED = new Resources(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long vcpus;
+    private final long ram;
+
+    /**
+     * @param ram Megabytes.
+     */
+    public Resources(long vcpus, long ram) {
+        this.vcpus = Math.max(0, vcpus);
+        this.ram = Math.max(0, ram);
+    }
+
+    public static @Nonnull Resources of(@Nonnull Flavor flavor) {
+        return new Resources(flavor.getVcpus(), flavor.getRam());
+    }
+
+    /**
+     * @param vcpus null for no limit.
+     * @param ram null for no limit.
+     */
+    public static @Nonnull Resources cap(@CheckForNull Integer vcpus, @CheckForNull Integer ram) {
+        if (vcpus == null && ram == null) return UNLIMITED;
+        return new Resources(vcpus == null ? Long.MAX_VALUE : vcpus, ram == null ? Long.MAX_VALUE : ram);
+    }
+
+    public long getVcpus() {
+        return vcpus;
+    }
+
+    public long getRam() {
+        return ram;
+    }
+
+    public @Nonnull Resources plus(@Nonnull Resources other) {
+        return new Resources(saturatedAdd(vcpus, other.vcpus), saturatedAdd(ram, other.ram));
+    }
+
+    /**
+     * Remove other from this, unlimited amount stays unlimited.
+     */
+    public @Nonnull Resources minus(@Nonnull Resources other) {
+        return new Resources(
+                vcpus == Long.MAX_VALUE ? vcpus : vcpus - other.vcpus,
+                ram == Long.MAX_VALUE ? ram : ram - other.ram
+        );
+    }
+
+    public @Nonnull Resources min(@Nonnull Resources other) {
+        return new Resources(Math.min(vcpus, other.vcpus), Math.min(ram, other.ram));
+    }
+
+    public boolean fits(@Nonnull Resources limit) {
+        return vcpus <= limit.vcpus && ram <= limit.ram;
+    }
+
+    /**
+     * Number of times size fits in this.
+     */
+    public @Nonnegative int count(@Nonnull Resources size) {
+        long count = Integer.MAX_VALUE;
+        if (size.vcpus > 0) count = Math.min(count, vcpus / size.vcpus);
+        if (size.ram > 0) count = Math.min(count, ram / size.ram);
+        return (int) count;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Resources that = (Resources) o;
+        return vcpus == that.vcpus && ram == that.ram;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (int) (vcpus ^ (vcpus >>> 32)) + (int) (ram ^ (ram >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s vCPUs, %s MB RAM",
+                vcpus == Long.MAX_VALUE ? "unlimited" : vcpus,
+                ram == Long.MAX_VALUE ? "unlimited" : ram
+        );
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Throwables;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.api.exceptions.AuthenticationException;
+import org.openstack4j.api.exceptions.ConnectionException;
+import org.openstack4j.api.exceptions.ResponseException;
+import org.openstack4j.model.compute.ActionResponse;
+
+/**
+ * Decide whether and when to retry failed OpenStack call.
+ *
+ * Only failures that are likely to go away are retried. The delay between attempts grows exponentially with random
+ * jitter so clients do not retry in lockstep, the delay requested by the server via Retry-After header is honored up
+ * to the max delay and the operation gives up once its deadline is reached.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class RetryPolicy {
+    private static final Logger LOGGER = Logger.getLogger(RetryPolicy.class.getName());
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Policy for calls to OpenStack, configurable via system properties.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+            Long.getLong(RetryPolicy.class.getName() + ".initialDelay", 500),
+            Long.getLong(RetryPolicy.class.getName() + ".maxDelay", 30000),
+            Integer.getInteger(RetryPolicy.class.getName() + ".maxAttempts", 5),
+            Long.getLong(RetryPolicy.class.getName() + ".deadline", 60000)
+    );
+
+    private final long initialDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+    private final long deadline;
+
+    /**
+     * @param initialDelay Milliseconds to wait before the first retry.
+     * @param maxDelay Max milliseconds to wait between two attempts.
+     * @param maxAttempts Max number of attempts including the first one.
+     * @param deadline Milliseconds after which the operation will not be retried. Non-positive for no deadline.
+     */
+    public RetryPolicy(@Nonnegative long initialDelay, @Nonnegative long maxDelay, @Nonnegative int maxAttempts, long deadline) {
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Perform the call retrying on transient failures.
+     *
+     * Failed {@link ActionResponse}s are retried the same way as exceptions, the last one is returned when out of attempts.
+     *
+     * @param operation Operation name to log.
+     * @param idempotent Call can be repeated safely even if it was possibly performed already. Non-idempotent calls are
+     *                   only retried when the request was certainly rejected.
+     */
+    public <T> T call(@Nonnull String operation, boolean idempotent, @Nonnull Callable<T> call) {
+        Backoff backoff = backoff();
+        while (true) {
+            T result;
+            try {
+                result = call.call();
+            } catch (Exception ex) {
+                if (isRetryable(ex, idempotent) && backoff.await(operation, ex.toString())) continue;
+                throw Throwables.propagate(ex);
+            }
+
+            if (result instanceof ActionResponse) {
+                ActionResponse res = (ActionResponse) result;
+                if (!res.isSuccess() && isRetryable(res.getCode(), idempotent) && backoff.await(operation, res.toString())) continue;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Start counting attempts of an operation.
+     */
+    public @Nonnull Backoff backoff() {
+        return new Backoff();
+    }
+
+    /*package*/ static boolean isRetryable(@Nonnull Throwable ex, boolean idempotent) {
+        if (ex instanceof AuthenticationException) return false;
+        if (ex instanceof ConnectionException) return idempotent;
+        if (ex instanceof ResponseException) return isRetryable(((ResponseException) ex).getStatus(), idempotent);
+        return false;
+    }
+
+    /*package*/ static boolean isRetryable(int status, boolean idempotent) {
+        switch (status) {
+            // Request was rejected and not performed
+            case 413: // Nova reports rate limit overrun this way
+            case 429:
+            case 503:
+                return true;
+            // Might or might not be performed
+            case 408:
+            case 500:
+            case 502:
+            case 504:
+                return idempotent;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Attempts of a single operation.
+     */
+    public final class Backoff {
+        private final long start = System.currentTimeMillis();
+        private int attempt = 1;
+
+        private Backoff() {}
+
+        /**
+         * Wait before the next attempt.
+         *
+         * @param operation Operation name to log.
+         * @param reason Why the last attempt failed.
+         * @return false if the operation should not be attempted again.
+         */
+        public boolean await(@Nonnull String operation, @Nonnull String reason) {
+            if (attempt >= maxAttempts) return false;
+
+            long delay = nextDelay(HttpTransport.getRetryAfter());
+            if (deadline > 0 && System.currentTimeMillis() + delay - start > deadline) return false;
+
+            LOGGER.log(Level.FINE, "Attempt {0} to {1} failed, retrying in {2}ms: {3}", new Object[] {
+                    attempt, operation, delay, reason
+            });
+            attempt++;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+
+        /*package*/ long nextDelay(@CheckForNull Long retryAfter) {
+            long exponential = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 30));
+            // Wait at least half of the exponential delay
+            long delay = exponential / 2 + (long) (RANDOM.nextDouble() * (exponential / 2 + 1));
+            return retryAfter == null ? delay : Math.min(maxDelay, Math.max(delay, retryAfter));
+        }
+    }
+}
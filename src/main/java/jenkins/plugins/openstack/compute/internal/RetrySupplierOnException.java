@@ -11,6 +11,10 @@ import hudson.model.TaskListener;
 
 class RetrySupplierOnException implements Callable<Server> {
     private final int MAX_ATTEMPTS = 5;
+    // Give OpenStack a chance to recover between the attempts. Boot can take long so there is no deadline.
+    private final RetryPolicy policy = new RetryPolicy(
+            Long.getLong(RetrySupplierOnException.class.getName() + ".initialDelay", 500), 30000, MAX_ATTEMPTS, 0
+    );
     private final TaskListener listener;
     private final Supplier<Server> supplier;
 
@@ -20,23 +24,25 @@ class RetrySupplierOnException implements Callable<Server> {
     }
 
     public Server call() throws Exception {
-        int attempts = 0;
+        RetryPolicy.Backoff backoff = policy.backoff();
 
-        while (attempts < MAX_ATTEMPTS) {
-            attempts++;
+        while (true) {
+            String reason;
             try {
                 Server n = supplier.get();
                 if (n != null) {
                     return n;
                 }
+                reason = "No node created";
             } catch (RuntimeException e) {
                 listener.error("Exception creating a node");
                 listener.getLogger().println(Functions.printThrowable(e));
                 // Something to log the e.getCause() which should be a
                 // RunNodesException
+                reason = e.toString();
             }
-        }
 
-        return null;
+            if (!backoff.await("create node", reason)) return null;
+        }
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.model.compute.Server;
+
+/**
+ * Number of running servers in total and per template.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class ServerCounts {
+
+    private final int total;
+    private final @Nonnull Map<String, Integer> templates;
+    private final long version;
+
+    /*package*/ ServerCounts(int total, @Nonnull Map<String, Integer> templates) {
+        this(total, templates, 0);
+    }
+
+    /*package*/ ServerCounts(int total, @Nonnull Map<String, Integer> templates, long version) {
+        this.total = total;
+        this.templates = Collections.unmodifiableMap(new HashMap<>(templates));
+        this.version = version;
+    }
+
+    /**
+     * Count the servers.
+     */
+    public static @Nonnull ServerCounts of(@Nonnull Collection<? extends Server> servers) {
+        Map<String, Integer> templates = new HashMap<>();
+        for (Server server : servers) {
+            add(templates, templateOf(server), 1);
+        }
+        return new ServerCounts(servers.size(), templates);
+    }
+
+    /*package*/ static @CheckForNull String templateOf(@Nonnull Server server) {
+        Map<String, String> metadata = server.getMetadata();
+        return metadata == null ? null : metadata.get(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY);
+    }
+
+    /*package*/ static void add(@Nonnull Map<String, Integer> templates, @CheckForNull String template, int delta) {
+        if (template == null) return;
+
+        Integer count = templates.get(template);
+        int updated = (count == null ? 0 : count) + delta;
+        if (updated > 0) {
+            templates.put(template, updated);
+        } else {
+            templates.remove(template);
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Servers provisioned from template.
+     */
+    public int getTemplate(@Nonnull String name) {
+        Integer count = templates.get(name);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Version of the server inventory counted, 0 when not known.
+     *
+     * Counts of unknown version are considered older than any server booted.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "Total " + total + ": " + templates;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.openstack4j.model.compute.Server;
+
+/**
+ * Servers of ours known from previous listings.
+ *
+ * Once populated by complete listing, it is kept up to date asking Nova for servers changed since the last poll so the
+ * cost of the refresh depends on the number of changes rather than the tenant size. Complete listing is repeated
+ * periodically not to accumulate errors.
+ *
+ * Servers booted and destroyed by the plugin are reflected right away without waiting for the next poll. Such changes
+ * made while complete listing was in progress take precedence over the listing as it might predate them.
+ *
+ * Only occupied servers are kept. Both the complete listing and the poll drop servers that are stopped, migrating or
+ * alike without reporting them deleted as they still exist. Servers are reported deleted only when Nova says so or
+ * when complete listing does not contain them at all.
+ *
+ * @author ogondza
+ */
+/*package*/ final class ServerInventory {
+    private static final Logger LOGGER = Logger.getLogger(ServerInventory.class.getName());
+
+    /**
+     * Milliseconds after which the inventory is populated from complete listing again.
+     */
+    private static final long RESYNC_INTERVAL = Long.getLong(ServerInventory.class.getName() + ".resyncInterval", 10 * 60 * 1000);
+
+    /**
+     * Milliseconds to poll back in time to tolerate clock difference between Jenkins and Nova.
+     */
+    private static final long CLOCK_MARGIN = Long.getLong(ServerInventory.class.getName() + ".clockMargin", 60 * 1000);
+
+    private final Map<String, Server> servers = new LinkedHashMap<>();
+    // Maintained along with servers so capacity checks do not need to scan them
+    private final Map<String, Integer> templateCounts = new HashMap<>();
+    // Time servers were last put or removed, by id
+    private final Map<String, Long> touched = new HashMap<>();
+    // Incremented on every change so counts can be told from older ones
+    private long version = 0;
+    private long synced = 0;
+    private long polled = 0;
+    private long read = 0;
+
+    /**
+     * Determine whether complete listing is needed.
+     */
+    /*package*/ synchronized boolean isStale(long now) {
+        return synced == 0 || now - synced > RESYNC_INTERVAL;
+    }
+
+    /**
+     * Determine whether the server is considered occupied by openstack plugin.
+     */
+    /*package*/ static boolean isOccupied(@Nonnull Server server) {
+        switch (server.getStatus()) {
+            case UNKNOWN:
+            case MIGRATING:
+            case SHUTOFF:
+            case DELETED:
+                return false;
+            case UNRECOGNIZED: // needs to be considered occupied not to leak a machine
+                LOGGER.log(Level.WARNING, "Machine state not recognized by openstack4j, report this as a bug: " + server);
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Populate from complete listing.
+     *
+     * Servers put or removed since the listing started are kept as they are.
+     *
+     * @param listed All our servers, occupied or not.
+     * @param started Time the listing started.
+     * @return Servers changed by the listing.
+     */
+    /*package*/ synchronized @Nonnull List<Change> reset(@Nonnull Collection<Server> listed, long started) {
+        Map<String, Server> after = new LinkedHashMap<>();
+        Set<String> existing = new HashSet<>();
+        for (Server server: listed) {
+            existing.add(server.getId());
+            if (isOccupied(server)) {
+                after.put(server.getId(), server);
+            }
+        }
+
+        Iterator<Map.Entry<String, Long>> it = touched.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (e.getValue() < started) {
+                it.remove();
+                continue;
+            }
+
+            Server current = servers.get(e.getKey());
+            if (current == null) {
+                after.remove(e.getKey());
+            } else {
+                after.put(e.getKey(), current);
+            }
+        }
+
+        Map<String, Server> before = new LinkedHashMap<>(servers);
+        servers.clear();
+        templateCounts.clear();
+        List<Change> changes = new ArrayList<>();
+        for (Server server: after.values()) {
+            add(server);
+            Server previous = before.remove(server.getId());
+            if (previous != server) {
+                changes.add(new Change(previous, server));
+            }
+        }
+        for (Server removed: before.values()) {
+            // No longer occupied but still there
+            if (existing.contains(removed.getId())) continue;
+
+            changes.add(new Change(removed, null));
+        }
+        version++;
+        synced = polled = started;
+        return changes;
+    }
+
+    /**
+     * Timestamp to ask Nova for changes since.
+     */
+    /*package*/ synchronized @Nonnull String changesSince() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(polled - CLOCK_MARGIN));
+    }
+
+    /**
+     * Changes since {@link #changesSince()} was applied.
+     *
+     * @param started Time the poll started.
+     */
+    /*package*/ synchronized void polled(long started) {
+        polled = started;
+    }
+
+    /**
+     * @return Server replaced, null if not known before.
+     */
+    /*package*/ synchronized @CheckForNull Server put(@Nonnull Server server) {
+        touched.put(server.getId(), System.currentTimeMillis());
+        return add(server);
+    }
+
+    private @CheckForNull Server add(@Nonnull Server server) {
+        version++;
+        Server replaced = servers.put(server.getId(), server);
+        if (replaced != null) {
+            ServerCounts.add(templateCounts, ServerCounts.templateOf(replaced), -1);
+        }
+        ServerCounts.add(templateCounts, ServerCounts.templateOf(server), 1);
+        return replaced;
+    }
+
+    /**
+     * Apply the state of the server Nova reported as changed since the last poll.
+     *
+     * @return Change to report, null if there is none.
+     */
+    /*package*/ synchronized @CheckForNull Change update(@Nonnull Server server) {
+        if (server.getStatus() == Server.Status.DELETED) {
+            Server removed = remove(server.getId());
+            return removed == null ? null : new Change(removed, null);
+        }
+
+        if (isOccupied(server)) return new Change(put(server), server);
+
+        // No longer occupied but still there
+        remove(server.getId());
+        return null;
+    }
+
+    /**
+     * @return Server removed, null if not known.
+     */
+    /*package*/ synchronized @CheckForNull Server remove(@CheckForNull String id) {
+        if (id == null) return null;
+
+        Server removed = servers.remove(id);
+        if (removed != null) {
+            version++;
+            touched.put(id, System.currentTimeMillis());
+            ServerCounts.add(templateCounts, ServerCounts.templateOf(removed), -1);
+        }
+        return removed;
+    }
+
+    /*package*/ synchronized @Nonnull List<Server> getServers() {
+        return new ArrayList<>(servers.values());
+    }
+
+    /**
+     * Get servers unless the inventory is older than given age, on behalf of the inventory user.
+     *
+     * @param maxAge Milliseconds.
+     * @return null if not populated or too old.
+     */
+    /*package*/ synchronized @CheckForNull List<Server> getServers(long maxAge) {
+        read = System.currentTimeMillis();
+        long age = getAge();
+        if (age < 0 || age > maxAge) return null;
+        return getServers();
+    }
+
+    /*package*/ synchronized @Nonnull ServerCounts getCounts() {
+        return new ServerCounts(servers.size(), templateCounts, version);
+    }
+
+    /**
+     * Get server counts unless the inventory is older than given age, on behalf of the inventory user.
+     *
+     * @param maxAge Milliseconds.
+     * @return null if not populated or too old.
+     */
+    /*package*/ synchronized @CheckForNull ServerCounts getCounts(long maxAge) {
+        read = System.currentTimeMillis();
+        long age = getAge();
+        if (age < 0 || age > maxAge) return null;
+        return getCounts();
+    }
+
+    /**
+     * Milliseconds since last refresh, -1 if never refreshed.
+     */
+    /*package*/ synchronized long getAge() {
+        return synced == 0 ? -1 : System.currentTimeMillis() - polled;
+    }
+
+    /**
+     * Milliseconds since the servers were last asked for, -1 if never.
+     */
+    /*package*/ synchronized long getIdleTime() {
+        return read == 0 ? -1 : System.currentTimeMillis() - read;
+    }
+
+    /**
+     * Version of the inventory, {@link ServerCounts#getVersion()} of the counts taken now.
+     */
+    /*package*/ synchronized long getVersion() {
+        return version;
+    }
+
+    /*package*/ synchronized int size() {
+        return servers.size();
+    }
+
+    /**
+     * Server state transition.
+     */
+    /*package*/ static final class Change {
+        /*package*/ final @CheckForNull Server before;
+        /*package*/ final @CheckForNull Server after;
+
+        private Change(@CheckForNull Server before, @CheckForNull Server after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
+import org.openstack4j.core.transport.ObjectMapperSingleton;
+import org.openstack4j.model.compute.Server;
+import org.openstack4j.openstack.compute.domain.NovaAddresses;
+import org.openstack4j.openstack.compute.domain.NovaFlavor;
+import org.openstack4j.openstack.compute.domain.NovaServer;
+
+/**
+ * Read detailed server listing keeping only the servers of interest.
+ *
+ * The response is read as a stream of tokens and only the fields the plugin uses are extracted: id, name, status,
+ * hostId, flavor id, addresses and the fingerprint and template metadata. No model objects are built for servers with
+ * different fingerprint, which is the vast majority on a shared tenant.
+ *
+ * Addresses are the exception to reading only what is ours. Nova lists them before the metadata so they are copied to
+ * a token buffer for every server whose ownership is not known yet, and the buffer is dropped once the server turns out
+ * not to be ours. Copying the small subtree of the server being read is cheaper than asking Nova for the addresses of
+ * our servers separately, one request per server.
+ *
+ * Listing is read page by page so only single page is processed at a time.
+ *
+ * @author ogondza
+ */
+/*package*/ final class ServerListing {
+
+    private static final ObjectMapper MAPPER = ObjectMapperSingleton.getContext(NovaAddresses.class);
+
+    private final @Nonnull String fingerprintKey;
+    private final @Nonnull String fingerprint;
+    private final @CheckForNull String tag;
+
+    /**
+     * @param fingerprintKey Metadata key holding the fingerprint.
+     * @param fingerprint Fingerprint the servers has to have to be returned.
+     * @param tag Server tag our servers are expected to have, null if not tracked.
+     */
+    /*package*/ ServerListing(@Nonnull String fingerprintKey, @Nonnull String fingerprint, @CheckForNull String tag) {
+        this.fingerprintKey = fingerprintKey;
+        this.fingerprint = fingerprint;
+        this.tag = tag;
+    }
+
+    /**
+     * Parse single page of {@code /servers/detail} response.
+     *
+     * @param in Response body.
+     * @param limit Number of servers requested per page, non-positive if not limited.
+     */
+    /*package*/ @Nonnull Page parse(@Nonnull InputStream in, int limit) throws IOException {
+        List<Server> servers = new ArrayList<>();
+        List<String> untagged = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        int count = 0;
+        String lastId = null;
+        boolean hasNext = false;
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("servers".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        count++;
+                        ServerFields server = parseServer(parser);
+                        lastId = server.id;
+                        // Metadata of deleted servers is not reported so their ownership can not be determined
+                        if ("DELETED".equalsIgnoreCase(server.status)) {
+                            deleted.add(server.id);
+                        }
+                        if (server.ours) {
+                            servers.add(server.toServer());
+                            if (tag != null && !server.tagged) {
+                                untagged.add(server.id);
+                            }
+                        }
+                    }
+                } else if ("servers_links".equals(field) && value == JsonToken.START_ARRAY) {
+                    hasNext = hasNextLink(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        // Nova advertises next page by a link when it cuts the listing by its osapi_max_limit. Do not rely on that alone
+        boolean more = hasNext || (limit > 0 && count >= limit);
+        return new Page(servers, untagged, deleted, more ? lastId : null);
+    }
+
+    private static boolean hasNextLink(@Nonnull JsonParser parser) throws IOException {
+        boolean next = false;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("rel".equals(field) && "next".equals(parser.getValueAsString())) {
+                    next = true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Parse server the parser is positioned at.
+     */
+    private @Nonnull ServerFields parseServer(@Nonnull JsonParser parser) throws IOException {
+        ServerFields server = new ServerFields();
+        boolean metadataRead = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id": server.id = parser.getValueAsString(); break;
+                case "name": server.name = parser.getValueAsString(); break;
+                case "status": server.status = parser.getValueAsString(); break;
+                case "hostId": server.hostId = parser.getValueAsString(); break;
+                case "flavor": server.flavorId = idOf(parser, value); break;
+                case "metadata":
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String key = parser.getCurrentName();
+                        parser.nextToken();
+                        if (fingerprintKey.equals(key)) {
+                            server.ours = fingerprint.equals(parser.getValueAsString());
+                        } else if (JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY.equals(key)) {
+                            server.templateName = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    metadataRead = true;
+                break;
+                case "tags":
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (tag != null && tag.equals(parser.getValueAsString())) {
+                            server.tagged = true;
+                        }
+                        parser.skipChildren();
+                    }
+                break;
+                case "addresses":
+                    server.addresses = keep(parser, value, metadataRead && !server.ours);
+                break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return server;
+    }
+
+    /**
+     * Read id of referenced entity.
+     *
+     * @return null if not present.
+     */
+    private static @CheckForNull String idOf(@Nonnull JsonParser parser, @CheckForNull JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Keep object subtree to be bound once it is known whether the server is ours.
+     *
+     * @param skip Known not to be needed, the subtree is copied otherwise even if the server turns out foreign.
+     * @return null if skipped.
+     */
+    private static @CheckForNull TokenBuffer keep(
+            @Nonnull JsonParser parser, @CheckForNull JsonToken value, boolean skip
+    ) throws IOException {
+        if (skip || value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        TokenBuffer buffer = new TokenBuffer(parser);
+        buffer.copyCurrentStructure(parser);
+        return buffer;
+    }
+
+    /**
+     * Flavor reference as listed with the server.
+     */
+    /*package*/ static @Nonnull NovaFlavor flavor(@Nonnull String id) {
+        return MAPPER.convertValue(Collections.singletonMap("id", id), NovaFlavor.class);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) throw new IOException("Expected " + expected + " but got " + actual);
+    }
+
+    private final class ServerFields {
+        private String id;
+        private String name;
+        private String status;
+        private String hostId;
+        private String flavorId;
+        private String templateName;
+        private boolean ours;
+        private boolean tagged;
+        private TokenBuffer addresses;
+
+        private @Nonnull Server toServer() throws IOException {
+            NovaServer server = new NovaServer();
+            server.id = id;
+            server.name = name;
+            server.status = Server.Status.forValue(status);
+            server.hostId = hostId;
+            if (flavorId != null) {
+                server.flavor = flavor(flavorId);
+            }
+            server.addresses = addresses == null
+                    ? new NovaAddresses()
+                    : MAPPER.readValue(addresses.asParser(MAPPER), NovaAddresses.class)
+            ;
+            server.metadata = new HashMap<>();
+            server.metadata.put(fingerprintKey, fingerprint);
+            if (templateName != null) {
+                server.metadata.put(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY, templateName);
+            }
+            return server;
+        }
+    }
+
+    /**
+     * Servers of interest from single page of the listing.
+     */
+    /*package*/ static final class Page {
+        /*package*/ final @Nonnull List<Server> servers;
+        /** Ids of servers from {@link #servers} missing the tag. */
+        /*package*/ final @Nonnull List<String> untagged;
+        /** Ids of all deleted servers listed, including those that might not be ours. */
+        /*package*/ final @Nonnull List<String> deleted;
+        /** Marker to request the next page with, null if this is the last one. */
+        /*package*/ final @CheckForNull String marker;
+
+        /*package*/ Page(
+                @Nonnull List<Server> servers, @Nonnull List<String> untagged, @Nonnull List<String> deleted,
+                @CheckForNull String marker
+        ) {
+            this.servers = servers;
+            this.untagged = untagged;
+            this.deleted = deleted;
+            this.marker = marker;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.HashMap;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.openstack4j.model.compute.Address;
+import org.openstack4j.model.compute.Addresses;
+import org.openstack4j.model.compute.Server;
+import org.openstack4j.openstack.compute.domain.NovaAddresses;
+import org.openstack4j.openstack.compute.domain.NovaServer;
+
+/**
+ * Facts about the server the slave needs to remember.
+ *
+ * Persisted with the node instead of the whole {@link Server} to keep the node configuration small.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class ServerSnapshot {
+
+    private final @Nonnull String id;
+    private final @Nonnull String name;
+    private final @CheckForNull String template;
+    private final @CheckForNull String hostId;
+    private final @CheckForNull String publicAddress;
+    private final @CheckForNull String fixedAddress;
+
+    /*package*/ ServerSnapshot(
+            @Nonnull String id, @Nonnull String name, @CheckForNull String template, @CheckForNull String hostId,
+            @CheckForNull String publicAddress, @CheckForNull String fixedAddress
+    ) {
+        this.id = id;
+        this.name = name;
+        this.template = template;
+        this.hostId = hostId;
+        this.publicAddress = publicAddress;
+        this.fixedAddress = fixedAddress;
+    }
+
+    public static @Nonnull ServerSnapshot of(@Nonnull Server server) {
+        String fixed = null;
+        String publicAddress = null;
+        Addresses addresses = server.getAddresses();
+        if (addresses != null && addresses.getAddresses() != null) {
+            fixed = firstFixed(addresses);
+            publicAddress = Openstack.getPublicAddress(server);
+        }
+
+        return new ServerSnapshot(
+                server.getId(), server.getName(), ServerCounts.templateOf(server), server.getHostId(),
+                publicAddress, fixed
+        );
+    }
+
+    private static @CheckForNull String firstFixed(@Nonnull Addresses addresses) {
+        for (List<? extends Address> network : addresses.getAddresses().values()) {
+            for (Address address : network) {
+                if (!"floating".equals(address.getType())) return address.getAddr();
+            }
+        }
+        return null;
+    }
+
+    public @Nonnull String getId() {
+        return id;
+    }
+
+    public @Nonnull String getName() {
+        return name;
+    }
+
+    /**
+     * Name of the template the server was provisioned from, null if not known.
+     */
+    public @CheckForNull String getTemplate() {
+        return template;
+    }
+
+    public @CheckForNull String getHostId() {
+        return hostId;
+    }
+
+    /**
+     * Floating IP, if there is none Fixed IP, null if there is none either.
+     */
+    public @CheckForNull String getPublicAddress() {
+        return publicAddress;
+    }
+
+    public @CheckForNull String getFixedAddress() {
+        return fixedAddress;
+    }
+
+    /**
+     * Server model to identify the server for {@link Openstack} operations.
+     */
+    public @Nonnull Server toServer() {
+        NovaServer server = new NovaServer();
+        server.id = id;
+        server.name = name;
+        server.hostId = hostId;
+        server.addresses = new NovaAddresses();
+        server.metadata = new HashMap<>();
+        if (template != null) {
+            server.metadata.put(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY, template);
+        }
+        return server;
+    }
+
+    @Override
+    public String toString() {
+        return "Server " + name + " (" + id + ")";
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nonnull;
+
+import hudson.Util;
+import org.openstack4j.core.transport.HttpRequest;
+import org.openstack4j.core.transport.HttpResponse;
+
+/**
+ * Let Nova filter servers launched by this instance using server tags.
+ *
+ * Servers are tagged with a digest of the instance fingerprint right after boot so the listing can ask for tagged
+ * servers only instead of transferring the whole tenant. Tags require compute API microversion 2.26, it is requested
+ * optimistically and the filtering is turned off for good once Nova does not confirm it.
+ *
+ * Untagged servers, launched before the tagging was introduced or whose tagging failed, would be missed by the
+ * filtered listing. Therefore, the filtering is only used after complete listing found and tagged all our servers,
+ * and never while there is a boot that is not tagged yet.
+ *
+ * @author ogondza
+ */
+/*package*/ final class ServerTags {
+    private static final Logger LOGGER = Logger.getLogger(ServerTags.class.getName());
+
+    /*package*/ static final String MICROVERSION = "2.26";
+
+    private static final String LEGACY_VERSION_HEADER = "X-OpenStack-Nova-API-Version";
+    private static final String VERSION_HEADER = "OpenStack-API-Version";
+
+    /**
+     * Set to false to always list the whole tenant.
+     */
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ServerTags.class.getName() + ".enabled", "true"));
+
+    private volatile boolean supported = ENABLED;
+    private boolean complete = false;
+    private long failures = 0;
+    private final AtomicInteger pendingBoots = new AtomicInteger();
+
+    /**
+     * Server tag identifying given fingerprint.
+     *
+     * Nova tags can not contain slashes and commas and are limited in length so the fingerprint is digested.
+     */
+    /*package*/ static @Nonnull String tagFor(@Nonnull String fingerprint) {
+        return "jenkins-" + Util.getDigestOf(fingerprint);
+    }
+
+    /*package*/ boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Determine whether all our servers are tagged so they can be listed by tag.
+     */
+    /*package*/ synchronized boolean canFilter() {
+        return supported && complete && pendingBoots.get() == 0;
+    }
+
+    /**
+     * Request tag-aware microversion, if supported.
+     */
+    /*package*/ void negotiate(@Nonnull HttpRequest.RequestBuilder<?> request) {
+        if (!supported) return;
+        request.header(LEGACY_VERSION_HEADER, MICROVERSION);
+        request.header(VERSION_HEADER, "compute " + MICROVERSION);
+    }
+
+    /**
+     * Learn whether the microversion was accepted from the response to negotiated request.
+     *
+     * @return false if the request needs to be repeated without the microversion.
+     */
+    /*package*/ boolean accept(@Nonnull HttpResponse response) {
+        if (!supported) return true;
+
+        if (response.getStatus() == 406) {
+            unsupported("microversion " + MICROVERSION + " rejected");
+            return false;
+        }
+
+        if (response.getStatus() < 400) {
+            String legacy = response.header(LEGACY_VERSION_HEADER);
+            String current = response.header(VERSION_HEADER);
+            if (!MICROVERSION.equals(legacy) && !("compute " + MICROVERSION).equals(current)) {
+                unsupported("microversion " + MICROVERSION + " not confirmed");
+            }
+        }
+        return true;
+    }
+
+    private void unsupported(@Nonnull String reason) {
+        supported = false;
+        LOGGER.log(Level.INFO, "Server tags not available, listing all servers: {0}", reason);
+    }
+
+    /**
+     * Complete listing of the tenant started.
+     *
+     * @return Token to pass to {@link #listed(long)}.
+     */
+    /*package*/ synchronized long listing() {
+        return failures;
+    }
+
+    /**
+     * Complete listing finished and all our servers found were tagged.
+     */
+    /*package*/ synchronized void listed(long token) {
+        // Some server failed to be tagged meanwhile
+        if (token != failures) return;
+
+        complete = true;
+    }
+
+    /**
+     * Server might have not been tagged.
+     */
+    /*package*/ synchronized void tagFailed(@Nonnull String server, @Nonnull String reason) {
+        LOGGER.log(Level.WARNING, "Failed to tag server {0}: {1}", new Object[] {server, reason});
+        failures++;
+        complete = false;
+    }
+
+    /*package*/ void bootStarted() {
+        pendingBoots.incrementAndGet();
+    }
+
+    /*package*/ void bootTagged() {
+        pendingBoots.decrementAndGet();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Coalesce concurrent invocations of the same call.
+ *
+ * The first thread to ask performs the call while the others arriving before it completes wait and share its result,
+ * or its failure. The result is not remembered once the call completes so the next invocation will call again.
+ *
+ * @author ogondza
+ */
+/*package*/ final class SingleFlight<K> {
+
+    private final ConcurrentMap<K, SettableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <V> V call(@Nonnull K key, @Nonnull Callable<V> call) {
+        SettableFuture<Object> mine = SettableFuture.create();
+        SettableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return (V) Uninterruptibles.getUninterruptibly(existing);
+            } catch (ExecutionException ex) {
+                // Rethrow the original exception as the caller would get it calling directly
+                throw Throwables.propagate(ex.getCause());
+            }
+        }
+
+        try {
+            V value = call.call();
+            mine.set(value);
+            return value;
+        } catch (Throwable ex) {
+            mine.setException(ex);
+            throw Throwables.propagate(ex);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+}
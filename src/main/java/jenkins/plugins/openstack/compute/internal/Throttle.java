@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Token bucket limiting the rate of requests sent to single OpenStack service.
+ *
+ * Requests over the limit wait for their turn instead of failing so the tenant API rate limits are not hit. Rate limits
+ * differ between deployments so requests are not limited unless configured.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class Throttle {
+    private static final Logger LOGGER = Logger.getLogger(Throttle.class.getName());
+
+    private final @Nonnull String service;
+    private final double rate;
+    private final @CheckForNull RateLimiter limiter;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+    private volatile long lastWait;
+
+    /**
+     * @param rate Requests per second permitted. Non-positive value means no limit.
+     */
+    /*package*/ Throttle(@Nonnull String service, double rate) {
+        this(service, rate, rate > 0 ? RateLimiter.create(rate) : null);
+    }
+
+    /*package*/ Throttle(@Nonnull String service, double rate, @CheckForNull RateLimiter limiter) {
+        this.service = service;
+        this.rate = limiter == null ? 0 : rate;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Create throttle with the rate configured by system property, not limited by default.
+     */
+    /*package*/ static @Nonnull Throttle forService(@Nonnull String service) {
+        String property = Throttle.class.getName() + "." + service + ".rate";
+        String value = System.getProperty(property);
+        double rate = 0;
+        if (value != null) {
+            try {
+                rate = Double.parseDouble(value);
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Ignoring malformed rate {0}={1}, not limiting", new Object[] {property, value});
+            }
+        }
+        return new Throttle(service, rate);
+    }
+
+    /**
+     * Wait until the request can be sent.
+     */
+    /*package*/ void acquire() {
+        requests.incrementAndGet();
+        if (limiter == null) return;
+
+        long nanos = (long) (limiter.acquire() * TimeUnit.SECONDS.toNanos(1));
+        lastWait = nanos;
+        waited.addAndGet(nanos);
+        long max;
+        do {
+            max = maxWait.get();
+        } while (nanos > max && !maxWait.compareAndSet(max, nanos));
+    }
+
+    public @Nonnull String getService() {
+        return service;
+    }
+
+    /**
+     * Permitted requests per second, 0 if not limited.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Milliseconds the most recent request waited.
+     */
+    public long getLastWait() {
+        return TimeUnit.NANOSECONDS.toMillis(lastWait);
+    }
+
+    /**
+     * Average milliseconds requests waited.
+     */
+    public long getAverageWait() {
+        long count = requests.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waited.get() / count);
+    }
+
+    /**
+     * Longest milliseconds request waited.
+     */
+    public long getMaxWait() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWait.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: %.1f req/s, %d requests, wait last %dms avg %dms max %dms",
+                service, getRate(), getRequests(), getLastWait(), getAverageWait(), getMaxWait()
+        );
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) Red Hat, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.openstack.compute.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Bytes received over the wire per operation.
+ *
+ * @author ogondza
+ */
+@Restricted(NoExternalUse.class)
+public final class TransferStatistics {
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentSkipListMap<>();
+
+    /**
+     * Count the response received for the operation.
+     *
+     * @return Operation to report the bytes of the response body to.
+     */
+    /*package*/ @Nonnull Operation response(@Nonnull String operation, boolean compressed) {
+        Operation op = operations.get(operation);
+        if (op == null) {
+            Operation existing = operations.putIfAbsent(operation, op = new Operation(operation));
+            if (existing != null) op = existing;
+        }
+        op.response(compressed);
+        return op;
+    }
+
+    /**
+     * Operations sorted by name.
+     */
+    public @Nonnull List<Operation> getOperations() {
+        return new ArrayList<>(operations.values());
+    }
+
+    public static final class Operation {
+        private final @Nonnull String name;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong compressedCalls = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long lastBytes;
+
+        private Operation(@Nonnull String name) {
+            this.name = name;
+        }
+
+        private void response(boolean compressed) {
+            calls.incrementAndGet();
+            if (compressed) {
+                compressedCalls.incrementAndGet();
+            }
+            lastBytes = 0;
+        }
+
+        /**
+         * @param bytes Bytes just read.
+         * @param total Bytes of the response read so far.
+         */
+        /*package*/ void received(long bytes, long total) {
+            this.bytes.addAndGet(bytes);
+            lastBytes = total;
+        }
+
+        public @Nonnull String getName() {
+            return name;
+        }
+
+        /**
+         * Number of HTTP responses received.
+         */
+        public long getCalls() {
+            return calls.get();
+        }
+
+        /**
+         * Number of responses received compressed.
+         */
+        public long getCompressedCalls() {
+            return compressedCalls.get();
+        }
+
+        /**
+         * Total bytes on the wire.
+         */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getAverageBytes() {
+            long c = calls.get();
+            return c == 0 ? 0 : bytes.get() / c;
+        }
+
+        /**
+         * Bytes of the most recent response read so far.
+         */
+        public long getLastBytes() {
+            return lastBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d calls (%d compressed), last %d bytes, average %d bytes",
+                    name, getCalls(), getCompressedCalls(), getLastBytes(), getAverageBytes()
+            );
+        }
+    }
+}
@@ -13,9 +13,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -57,6 +59,7 @@ import jenkins.plugins.openstack.compute.JCloudsCloud;
 import jenkins.plugins.openstack.compute.JCloudsSlave;
 import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
 import jenkins.plugins.openstack.compute.internal.Openstack;
+import jenkins.plugins.openstack.compute.internal.ServerCounts;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -151,6 +154,12 @@ public final class PluginTestRule extends JenkinsRule {
         return cloud;
     }
 
+    public JCloudsCloud dummyCloud(String name, SlaveOptions opts, JCloudsSlaveTemplate... templates) {
+        JCloudsCloud cloud = new MockJCloudsCloud(name, opts, templates);
+        jenkins.clouds.add(cloud);
+        return cloud;
+    }
+
     public JCloudsCloud createCloudLaunchingDummySlaves(String labels) {
         return configureSlaveLaunching(dummyCloud(dummySlaveTemplate(labels)));
     }
@@ -176,6 +185,7 @@ public final class PluginTestRule extends JenkinsRule {
                 Server machine = mockServer()
                         .name("provisioned" + num)
                         .floatingIp("42.42.42." + num)
+                        .flavor(builder.build().getFlavorRef())
                         .metadata(builder.build().getMetaData())
                         .get()
                 ;
@@ -200,7 +210,13 @@ public final class PluginTestRule extends JenkinsRule {
         doAnswer(new Answer() {
             @Override public Object answer(InvocationOnMock invocation) throws Throwable {
                 Server server = (Server) invocation.getArguments()[0];
-                running.remove(server);
+                // Slaves identify their servers by id
+                synchronized (running) {
+                    Iterator<Server> it = running.iterator();
+                    while (it.hasNext()) {
+                        if (it.next().getId().equals(server.getId())) it.remove();
+                    }
+                }
                 return null;
             }
         }).when(os).destroyServer(any(Server.class));
@@ -219,7 +235,20 @@ public final class PluginTestRule extends JenkinsRule {
     }
 
     public Openstack fakeOpenstackFactory() {
-        return fakeOpenstackFactory(mock(Openstack.class, RETURNS_SMART_NULLS));
+        return fakeOpenstackFactory(mockOpenstack());
+    }
+
+    /**
+     * Mock client counting whatever servers {@link Openstack#getRunningNodes()} is stubbed to return.
+     */
+    public static Openstack mockOpenstack() {
+        final Openstack os = mock(Openstack.class, RETURNS_SMART_NULLS);
+        when(os.getRunningNodeCounts()).thenAnswer(new Answer<ServerCounts>() {
+            @Override public ServerCounts answer(InvocationOnMock invocation) throws Throwable {
+                return ServerCounts.of(os.getRunningNodes());
+            }
+        });
+        return os;
     }
 
     public Openstack fakeOpenstackFactory(final Openstack os) {
@@ -249,6 +278,7 @@ public final class PluginTestRule extends JenkinsRule {
 
         public MockServerBuilder() {
             server = mock(Server.class);
+            when(server.getId()).thenReturn(UUID.randomUUID().toString());
             when(server.getAddresses()).thenReturn(new NovaAddresses());
             when(server.getMetadata()).thenReturn(metadata);
             metadata.put("jenkins-instance", jenkins.getRootUrl()); // Mark the slave as ours
@@ -268,6 +298,11 @@ public final class PluginTestRule extends JenkinsRule {
             return this;
         }
 
+        public MockServerBuilder flavor(String flavorId) {
+            when(server.getFlavorId()).thenReturn(flavorId);
+            return this;
+        }
+
         public MockServerBuilder status(Server.Status status) {
             when(server.getStatus()).thenReturn(status);
             return this;
@@ -340,14 +375,18 @@ public final class PluginTestRule extends JenkinsRule {
                 .build()
         ;
 
-        private final transient Openstack os = mock(Openstack.class, RETURNS_SMART_NULLS);
+        private final transient Openstack os = mockOpenstack();
 
         public MockJCloudsCloud(JCloudsSlaveTemplate... templates) {
             this(DEFAULTS, templates);
         }
 
         public MockJCloudsCloud(SlaveOptions opts, JCloudsSlaveTemplate... templates) {
-            super("openstack", "identity", "credential", "endPointUrl", "zone", opts, Arrays.asList(templates));
+            this("openstack", opts, templates);
+        }
+
+        public MockJCloudsCloud(String name, SlaveOptions opts, JCloudsSlaveTemplate... templates) {
+            super(name, "identity", "credential", "endPointUrl", "zone", opts, Arrays.asList(templates));
         }
 
         @Override
@@ -3,7 +3,10 @@ package jenkins.plugins.openstack.compute;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -11,6 +14,7 @@ import static org.mockito.Mockito.when;
 import com.cloudbees.jenkins.plugins.sshcredentials.impl.BasicSSHUserPrivateKey;
 import hudson.plugins.sshslaves.SSHLauncher;
 import jenkins.plugins.openstack.GlobalConfig;
+import jenkins.plugins.openstack.compute.internal.CapacityReservations;
 import jenkins.plugins.openstack.compute.internal.Openstack;
 import org.apache.commons.io.IOUtils;
 import org.junit.Ignore;
@@ -96,10 +100,10 @@ public class JCloudsCloudTest {
 
 
         JCloudsSlaveTemplate template = new JCloudsSlaveTemplate("template", "label", new SlaveOptions(
-                "img", "hw", "nw", "ud", 1, "public", "sg", "az", 2, "kp", 3, "jvmo", "fsRoot", "cid", JCloudsCloud.SlaveType.JNLP, 4
+                "img", "hw", "nw", "ud", 1, null, null, "public", "sg", "az", 2, "kp", 3, "jvmo", "fsRoot", "cid", JCloudsCloud.SlaveType.JNLP, 4
         ));
         JCloudsCloud cloud = new JCloudsCloud("openstack", "identity", "credential", "endPointUrl", "zone", new SlaveOptions(
-                "IMG", "HW", "NW", "UD", 6, null, "SG", "AZ", 7, "KP", 8, "JVMO", "FSrOOT", "CID", JCloudsCloud.SlaveType.SSH, 9
+                "IMG", "HW", "NW", "UD", 6, null, null, null, "SG", "AZ", 7, "KP", 8, "JVMO", "FSrOOT", "CID", JCloudsCloud.SlaveType.SSH, 9
         ), Arrays.asList(template));
         j.jenkins.clouds.add(cloud);
 
@@ -141,6 +145,22 @@ public class JCloudsCloudTest {
         assertEquals(String.valueOf(DEF.getRetentionTime()), c.def("retentionTime"));
     }
 
+    @Test
+    public void lookupTemplates() {
+        JCloudsSlaveTemplate linux = j.dummySlaveTemplate("linux x86");
+        JCloudsSlaveTemplate windows = j.dummySlaveTemplate("windows x86");
+        JCloudsCloud cloud = j.dummyCloud(linux, windows);
+
+        assertSame(linux, cloud.getTemplate(linux.name));
+        assertSame(windows, cloud.getTemplate(windows.name));
+        assertNull(cloud.getTemplate("no_such_template"));
+
+        assertTrue(cloud.canProvision(Label.get("x86")));
+        assertTrue(cloud.canProvision(j.jenkins.getLabel("windows && !linux")));
+        assertFalse(cloud.canProvision(j.jenkins.getLabel("windows && linux")));
+        assertTrue(cloud.canProvision(null));
+    }
+
     @Test
     public void eraseDefaults() {
         int biggerInstanceCap = j.getCloudDescriptor().getDefaultOptions().getInstanceCap() * 2;
@@ -163,6 +183,7 @@ public class JCloudsCloudTest {
                 j.dummySlaveOptions(),
                 Collections.<JCloudsSlaveTemplate>emptyList()
         );
+        original.setSelectionStrategy(new TemplateSelectionStrategy.RoundRobin());
         j.jenkins.clouds.add(original);
 
         j.submit(j.createWebClient().goTo("configure").getFormByName("config"));
@@ -171,6 +192,27 @@ public class JCloudsCloudTest {
         assertSame(j.getInstance().clouds.getByName("openstack"), actual);
         j.assertEqualBeans(original, actual, beans);
         assertEquals(original.getRawSlaveOptions(), JCloudsCloud.getByName("openstack").getRawSlaveOptions());
+        assertEquals(TemplateSelectionStrategy.RoundRobin.class, actual.getSelectionStrategy().getClass());
+    }
+
+    @Test
+    public void keepReservationsOnReconfiguration() throws Exception {
+        JCloudsCloud original = new JCloudsCloud(
+                "reconfigured", "identity", "credential", "endPointUrl", "zone",
+                j.dummySlaveOptions(),
+                Collections.<JCloudsSlaveTemplate>emptyList()
+        );
+        j.jenkins.clouds.add(original);
+        CapacityReservations.Reservation reservation = original.getReservations().forceReserve("template");
+
+        j.submit(j.createWebClient().goTo("configure").getFormByName("config"));
+
+        JCloudsCloud actual = JCloudsCloud.getByName("reconfigured");
+        assertNotSame(original, actual);
+        assertEquals(1, actual.getReservations().getTotal());
+
+        reservation.release();
+        assertEquals(0, actual.getReservations().getTotal());
     }
 
     @Test @LocalData
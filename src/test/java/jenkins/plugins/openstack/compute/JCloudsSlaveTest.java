@@ -1,12 +1,23 @@
 package jenkins.plugins.openstack.compute;
 
 import jenkins.plugins.openstack.PluginTestRule;
+import jenkins.plugins.openstack.compute.internal.Openstack;
+import jenkins.plugins.openstack.compute.internal.ServerSnapshot;
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.recipes.LocalData;
+import org.mockito.ArgumentCaptor;
+import org.openstack4j.model.compute.Server;
 
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author ogondza.
@@ -27,4 +38,31 @@ public class JCloudsSlaveTest {
         assertEquals("8f3da277-c60e-444c-ab86-517e96ffe508", so.getCredentialsId());
         assertEquals(JCloudsCloud.SlaveType.SSH, so.getSlaveType());
     }
+
+    @Test @LocalData
+    public void migrateServerMetadata() throws Exception {
+        JCloudsCloud cloud = j.dummyCloud("openstack", j.dummySlaveOptions());
+        JCloudsSlave slave = (JCloudsSlave) j.jenkins.getNode("cloud-slave");
+
+        ServerSnapshot server = slave.getServer();
+        assertNotNull(server);
+        assertEquals("f2e8b9c3-6d1a-4c5e-9a7b-3e4f5a6b7c8d", server.getId());
+        assertEquals("cloud-slave", server.getName());
+        assertEquals("docker", server.getTemplate());
+        assertEquals("42.43.44.45", slave.getPublicAddress());
+        assertEquals("10.0.0.5", server.getFixedAddress());
+
+        // The whole server is not persisted again
+        j.jenkins.save();
+        String config = FileUtils.readFileToString(new File(j.jenkins.getRootDir(), "config.xml"));
+        assertThat(config, not(containsString("NovaServer")));
+        assertThat(config, containsString("f2e8b9c3-6d1a-4c5e-9a7b-3e4f5a6b7c8d"));
+
+        Openstack os = cloud.getOpenstack();
+        slave.terminate();
+        ArgumentCaptor<Server> destroyed = ArgumentCaptor.forClass(Server.class);
+        verify(os).destroyServer(destroyed.capture());
+        assertEquals("f2e8b9c3-6d1a-4c5e-9a7b-3e4f5a6b7c8d", destroyed.getValue().getId());
+        assertEquals("docker", destroyed.getValue().getMetadata().get(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY));
+    }
 }
@@ -14,10 +14,13 @@ import hudson.model.labels.LabelAtom;
 import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.slaves.NodeProvisioner;
 import jenkins.plugins.openstack.PluginTestRule;
+import jenkins.plugins.openstack.compute.internal.CircuitBreaker;
 import jenkins.plugins.openstack.compute.internal.Openstack;
+import jenkins.plugins.openstack.compute.internal.Resources;
 import org.hamcrest.Matchers;
 import org.jenkinsci.plugins.cloudstats.CloudStatistics;
 import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
+import org.jenkinsci.plugins.cloudstats.TrackedPlannedNode;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
@@ -26,10 +29,14 @@ import org.mockito.ArgumentCaptor;
 import org.openstack4j.model.compute.Server;
 import org.openstack4j.model.compute.builder.ServerCreateBuilder;
 
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -96,6 +103,7 @@ public class ProvisioningTest {
         assertThat(j.buildAndAssertSuccess(p).getBuiltOn(), Matchers.instanceOf(JCloudsSlave.class));
 
         Openstack os = cloud.getOpenstack();
+        verify(os, atLeastOnce()).getRunningNodeCounts();
         verify(os, atLeastOnce()).getRunningNodes();
         verify(os, times(2)).bootAndWaitActive(any(ServerCreateBuilder.class), any(Integer.class));
         verify(os, times(2)).assignFloatingIp(any(Server.class), eq("custom"));
@@ -155,6 +163,236 @@ public class ProvisioningTest {
         assertEquals(3, openTmplt.getRunningNodes().size());
     }
 
+    @Test
+    public void doNotProvisionOnceResourceCapReached() throws Exception {
+        SlaveOptions init = j.dummySlaveOptions();
+        JCloudsSlaveTemplate restrictedTmplt = j.dummySlaveTemplate(init.getBuilder().ramCap(4096).build(), "restricted common");
+        JCloudsSlaveTemplate openTmplt = j.dummySlaveTemplate(init, "open common");
+        JCloudsCloud cloud = j.dummyCloud(init.getBuilder().instanceCap(10).vcpuCap(8).build(), restrictedTmplt, openTmplt);
+        j.configureSlaveLaunching(cloud);
+        Openstack os = cloud.getOpenstack();
+        when(os.getFlavorSizes()).thenReturn(Collections.singletonMap(init.getHardwareId(), new Resources(2, 2048)));
+
+        // Template RAM cap exceeded
+        assertProvisioned(2, cloud.provision(Label.get("restricted"), 3));
+        assertEquals(2, restrictedTmplt.getRunningNodes().size());
+
+        // Cloud vCPU cap exceeded
+        assertProvisioned(2, cloud.provision(Label.get("open"), 3));
+        assertEquals(4, os.getRunningNodes().size());
+        assertProvisioned(0, cloud.provision(Label.get("common"), 1));
+
+        // Tenant quota exceeded
+        SlaveOptions unlimited = init.getBuilder().instanceCap(10).build();
+        JCloudsCloud tenant = j.configureSlaveLaunching(j.dummyCloud(unlimited, j.dummySlaveTemplate(unlimited, "tenant")));
+        when(tenant.getOpenstack().getFlavorSizes()).thenReturn(Collections.singletonMap(init.getHardwareId(), new Resources(2, 2048)));
+        when(tenant.getOpenstack().getQuotaHeadroom()).thenReturn(new Resources(5, 100000));
+        assertProvisioned(2, tenant.provision(Label.get("tenant"), 3));
+    }
+
+    @Test
+    public void selectTemplatesUsingStrategy() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(10).build();
+        JCloudsSlaveTemplate first = j.dummySlaveTemplate(opts, "first common");
+        JCloudsSlaveTemplate second = j.dummySlaveTemplate(opts, "second common");
+        JCloudsCloud cloud = j.configureSlaveLaunching(j.dummyCloud(opts, first, second));
+        Label common = Label.get("common");
+
+        assertProvisioned(2, cloud.provision(common, 2));
+        assertEquals(2, first.getRunningNodes().size());
+        assertEquals(0, second.getRunningNodes().size());
+
+        cloud.setSelectionStrategy(new TemplateSelectionStrategy.LeastLoaded());
+        assertProvisioned(2, cloud.provision(common, 2));
+        assertEquals(2, first.getRunningNodes().size());
+        assertEquals(2, second.getRunningNodes().size());
+
+        cloud.setSelectionStrategy(new TemplateSelectionStrategy.RoundRobin());
+        assertProvisioned(2, cloud.provision(common, 2));
+        assertEquals(3, first.getRunningNodes().size());
+        assertEquals(3, second.getRunningNodes().size());
+    }
+
+    @Test
+    public void selectFastestBootingTemplate() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(10).build();
+        JCloudsSlaveTemplate slow = j.dummySlaveTemplate(opts, "slow common");
+        JCloudsSlaveTemplate fast = j.dummySlaveTemplate(opts, "fast common");
+        JCloudsSlaveTemplate unknown = j.dummySlaveTemplate(opts, "unknown common");
+        JCloudsCloud cloud = j.configureSlaveLaunching(j.dummyCloud(opts, slow, fast, unknown));
+        cloud.setSelectionStrategy(new TemplateSelectionStrategy.FastestBoot());
+        cloud.getBootTimes().record(slow.name, 60000);
+        cloud.getBootTimes().record(fast.name, 10000);
+        Label common = Label.get("common");
+
+        // Not known yet
+        assertProvisioned(1, cloud.provision(common, 1));
+        assertEquals(1, unknown.getRunningNodes().size());
+
+        cloud.getBootTimes().record(unknown.name, 30000);
+        assertProvisioned(1, cloud.provision(common, 1));
+        assertEquals(1, fast.getRunningNodes().size());
+        assertEquals(0, slow.getRunningNodes().size());
+    }
+
+    @Test
+    public void penalizeTemplateFailingToBoot() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().startTimeout(42000).build();
+        JCloudsSlaveTemplate template = j.dummySlaveTemplate(opts, "label");
+        JCloudsCloud cloud = j.dummyCloud(opts, template);
+        Openstack os = cloud.getOpenstack();
+        when(os.bootAndWaitActive(any(ServerCreateBuilder.class), any(Integer.class))).thenThrow(new Openstack.ActionFailed("It is broken, alright!"));
+
+        Collection<NodeProvisioner.PlannedNode> nodes = cloud.provision(Label.get("label"), 1);
+        assertEquals(1, nodes.size());
+        try {
+            nodes.iterator().next().future.get();
+            fail();
+        } catch (ExecutionException ex) {
+            // Expected
+        }
+
+        assertEquals(42000, cloud.getBootTimes().get(template.name));
+    }
+
+    @Test
+    public void spreadAcrossAvailabilityZones() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(10).build();
+        JCloudsSlaveTemplate a1 = j.dummySlaveTemplate(opts.getBuilder().availabilityZone("a").build(), "common");
+        JCloudsSlaveTemplate a2 = j.dummySlaveTemplate(opts.getBuilder().availabilityZone("a").build(), "common");
+        JCloudsSlaveTemplate b = j.dummySlaveTemplate(opts.getBuilder().availabilityZone("b").build(), "common");
+        JCloudsCloud cloud = j.configureSlaveLaunching(j.dummyCloud(opts, a1, a2, b));
+        cloud.setSelectionStrategy(new TemplateSelectionStrategy.AvailabilityZoneSpread());
+        Label common = Label.get("common");
+
+        for (int i = 0; i < 4; i++) {
+            assertProvisioned(1, cloud.provision(common, 1));
+        }
+
+        // Zones evenly, the least loaded template within the zone
+        assertEquals(1, a1.getRunningNodes().size());
+        assertEquals(1, a2.getRunningNodes().size());
+        assertEquals(2, b.getRunningNodes().size());
+    }
+
+    @Test
+    public void splitWorkloadAmongClouds() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(3).numExecutors(1).build();
+        JCloudsSlaveTemplate slowTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsSlaveTemplate fastTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsCloud slow = j.configureSlaveLaunching(j.dummyCloud("slow", opts, slowTemplate));
+        JCloudsCloud fast = j.configureSlaveLaunching(j.dummyCloud("fast", opts, fastTemplate));
+        slow.getBootTimes().record(slowTemplate.name, 60000);
+        fast.getBootTimes().record(fastTemplate.name, 10000);
+        Label label = Label.get("label");
+
+        // Fastest cloud first, overflow to the slow one
+        assertProvisioned(1, slow.provision(label, 4));
+        assertProvisioned(3, fast.provision(label, 3));
+
+        assertEquals(1, slowTemplate.getRunningNodes().size());
+        assertEquals(3, fastTemplate.getRunningNodes().size());
+    }
+
+    @Test
+    public void bypassCloudWithOpenCircuit() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(3).numExecutors(1).build();
+        JCloudsSlaveTemplate slowTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsSlaveTemplate fastTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsCloud slow = j.configureSlaveLaunching(j.dummyCloud("slow", opts, slowTemplate));
+        JCloudsCloud fast = j.configureSlaveLaunching(j.dummyCloud("fast", opts, fastTemplate));
+        slow.getBootTimes().record(slowTemplate.name, 60000);
+        fast.getBootTimes().record(fastTemplate.name, 10000);
+        Label label = Label.get("label");
+
+        CircuitBreaker breaker = fast.getCircuitBreaker();
+        while (breaker.getState() != CircuitBreaker.State.OPEN) {
+            breaker.failure("It is broken, alright!");
+        }
+
+        assertProvisioned(0, fast.provision(label, 2));
+        assertProvisioned(2, slow.provision(label, 2));
+        assertEquals(0, fastTemplate.getRunningNodes().size());
+    }
+
+    @Test
+    public void rankCloudsWithUnknownBootTimeLast() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(3).numExecutors(1).build();
+        JCloudsSlaveTemplate newTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsSlaveTemplate knownTemplate = j.dummySlaveTemplate(opts, "label");
+        JCloudsCloud fresh = j.configureSlaveLaunching(j.dummyCloud("fresh", opts, newTemplate));
+        JCloudsCloud known = j.configureSlaveLaunching(j.dummyCloud("known", opts, knownTemplate));
+        known.getBootTimes().record(knownTemplate.name, 60000);
+        Label label = Label.get("label");
+
+        // Cloud with no boot observed takes the overflow only
+        assertProvisioned(1, fresh.provision(label, 4));
+        assertProvisioned(3, known.provision(label, 3));
+    }
+
+    @Test
+    public void provisionAheadOfForecastDemand() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(3).numExecutors(1).build();
+        JCloudsSlaveTemplate template = j.dummySlaveTemplate(opts, "label");
+        j.configureSlaveLaunching(j.dummyCloud(opts, template));
+        Label label = Label.get("label");
+        DemandForecaster forecaster = DemandForecaster.get();
+        assertNotNull(forecaster);
+
+        assertProvisioned(2, forecaster.preProvision(label, 2));
+        assertEquals(2, template.getRunningNodes().size());
+
+        // Existing slaves cover the forecast
+        assertProvisioned(0, forecaster.preProvision(label, 2));
+
+        // Instance cap holds
+        assertProvisioned(1, forecaster.preProvision(label, 5));
+        assertEquals(3, template.getRunningNodes().size());
+    }
+
+    @Test
+    public void leaveQueuedItemsToNodeProvisioner() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(5).numExecutors(1).build();
+        JCloudsSlaveTemplate template = j.dummySlaveTemplate(opts, "label");
+        j.configureSlaveLaunching(j.dummyCloud(opts, template));
+        Label label = Label.get("label");
+
+        for (int i = 0; i < 2; i++) {
+            FreeStyleProject p = j.createFreeStyleProject();
+            p.setAssignedLabel(label);
+            p.scheduleBuild2(0);
+        }
+        // NodeProvisioner can start some of the builds meanwhile, it does not change the forecaster math
+        long timeout = System.currentTimeMillis() + 10000;
+        while (label.getBusyExecutors() + j.jenkins.getQueue().countBuildableItemsFor(label) < 2) {
+            assertTrue("Builds not queued in time", System.currentTimeMillis() < timeout);
+            j.jenkins.getQueue().maintain();
+            Thread.sleep(100);
+        }
+
+        // Only the demand predicted on top of the queue
+        assertProvisioned(1, DemandForecaster.get().preProvision(label, 3));
+    }
+
+    @Test
+    public void countNodesProvisionedAheadUntilOnline() throws Exception {
+        SlaveOptions opts = j.dummySlaveOptions().getBuilder().instanceCap(5).numExecutors(1).build();
+        JCloudsSlaveTemplate template = j.dummySlaveTemplate(opts, "label");
+        JCloudsCloud cloud = j.configureSlaveLaunching(j.dummyCloud(opts, template));
+        Label label = Label.get("label");
+
+        SettableFuture<Node> connecting = SettableFuture.create();
+        DemandForecaster.get().track(new TrackedPlannedNode(
+                new ProvisioningActivity.Id(cloud.name, template.name), 1, connecting
+        ));
+
+        // NodeProvisioner does not know about the node provisioned ahead
+        assertProvisioned(1, cloud.provision(label, 2));
+
+        connecting.setException(new IOException("Failed to connect"));
+        assertProvisioned(2, cloud.provision(label, 2));
+    }
+
     public void assertProvisioned(int expectedCount, Collection<NodeProvisioner.PlannedNode> nodes) throws Exception {
         assertEquals(expectedCount, nodes.size());
         for (NodeProvisioner.PlannedNode node : nodes) {
@@ -0,0 +1,76 @@
+package jenkins.plugins.openstack.compute;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openstack4j.model.compute.Address;
+import org.openstack4j.model.compute.Addresses;
+import org.openstack4j.model.compute.Server;
+
+public class ServerListenerTest {
+
+    @Test
+    public void lifecycle() {
+        Recorder r = new Recorder();
+
+        Server building = server(Server.Status.BUILD);
+        r.changed(null, building);
+        assertEquals(Arrays.asList("created"), r.events);
+
+        r.changed(building, server(Server.Status.BUILD));
+        assertEquals("No change observed", Arrays.asList("created"), r.events);
+
+        Server active = server(Server.Status.ACTIVE, "10.0.0.1");
+        r.changed(building, active);
+        assertEquals(Arrays.asList("created", "active", "address"), r.events);
+
+        Server moved = server(Server.Status.ACTIVE, "10.0.0.2");
+        r.changed(active, moved);
+        assertEquals(Arrays.asList("created", "active", "address", "address"), r.events);
+
+        r.changed(moved, null);
+        assertEquals(Arrays.asList("created", "active", "address", "address", "deleted"), r.events);
+    }
+
+    @Test
+    public void foundInError() {
+        Recorder r = new Recorder();
+        r.changed(null, server(Server.Status.ERROR));
+        assertEquals(Arrays.asList("created", "error"), r.events);
+    }
+
+    private static Server server(Server.Status status, String... ips) {
+        List<Address> list = new ArrayList<>();
+        for (String ip : ips) {
+            Address address = mock(Address.class);
+            when(address.getAddr()).thenReturn(ip);
+            when(address.getType()).thenReturn("fixed");
+            list.add(address);
+        }
+        Addresses addresses = mock(Addresses.class);
+        when(addresses.getAddresses()).thenReturn(Collections.<String, List<? extends Address>>singletonMap("private", list));
+
+        Server server = mock(Server.class);
+        when(server.getId()).thenReturn("id");
+        when(server.getStatus()).thenReturn(status);
+        when(server.getAddresses()).thenReturn(addresses);
+        return server;
+    }
+
+    private static final class Recorder extends ServerListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override public void onCreated(Server server) { events.add("created"); }
+        @Override public void onActive(Server server) { events.add("active"); }
+        @Override public void onError(Server server) { events.add("error"); }
+        @Override public void onDeleted(Server server) { events.add("deleted"); }
+        @Override public void onAddressChanged(Server server) { events.add("address"); }
+    }
+}
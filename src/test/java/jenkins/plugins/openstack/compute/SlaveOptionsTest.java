@@ -13,7 +13,7 @@ public class SlaveOptionsTest {
      * Reusable options instance guaranteed not to collide with defaults
      */
     public static final SlaveOptions CUSTOM = new SlaveOptions(
-            "img", "hw", "nw", "ud", 1, "pool", "sg", "az", 1, null, 10, "jvmo", "fsRoot", "cid", JCloudsCloud.SlaveType.JNLP, 1
+            "img", "hw", "nw", "ud", 1, 4, 8192, "pool", "sg", "az", 1, null, 10, "jvmo", "fsRoot", "cid", JCloudsCloud.SlaveType.JNLP, 1
     );
 
     @Test // instanceCap is a subject of different overriding rules
@@ -25,6 +25,8 @@ public class SlaveOptionsTest {
         assertEquals("nw", unmodified.getNetworkId());
         assertEquals("ud", unmodified.getUserDataId());
         assertEquals(1, (int) unmodified.getInstanceCap());
+        assertEquals(4, (int) unmodified.getVcpuCap());
+        assertEquals(8192, (int) unmodified.getRamCap());
         assertEquals("pool", unmodified.getFloatingIpPool());
         assertEquals("sg", unmodified.getSecurityGroups());
         assertEquals("az", unmodified.getAvailabilityZone());
@@ -43,6 +45,8 @@ public class SlaveOptionsTest {
                 .networkId("NW")
                 .userDataId("UD")
                 .instanceCap(42)
+                .vcpuCap(16)
+                .ramCap(32768)
                 .floatingIpPool("POOL")
                 .securityGroups("SG")
                 .availabilityZone("AZ")
@@ -63,6 +67,8 @@ public class SlaveOptionsTest {
         assertEquals("NW", overridden.getNetworkId());
         assertEquals("UD", overridden.getUserDataId());
         assertEquals(42, (int) overridden.getInstanceCap());
+        assertEquals(16, (int) overridden.getVcpuCap());
+        assertEquals(32768, (int) overridden.getRamCap());
         assertEquals("POOL", overridden.getFloatingIpPool());
         assertEquals("SG", overridden.getSecurityGroups());
         assertEquals("AZ", overridden.getAvailabilityZone());
@@ -92,7 +98,7 @@ public class SlaveOptionsTest {
     public void emptyStrings() {
         SlaveOptions nulls = SlaveOptions.empty();
         SlaveOptions emptyStrings = new SlaveOptions(
-                "", "", "", "", null, "", "", "", null, "", null, "", "", "", null, null
+                "", "", "", "", null, null, null, "", "", "", null, "", null, "", "", "", null, null
         );
         SlaveOptions emptyBuilt = SlaveOptions.builder()
                 .imageId("")
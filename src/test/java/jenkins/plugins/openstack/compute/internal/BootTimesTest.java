@@ -0,0 +1,26 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BootTimesTest {
+
+    @Test
+    public void followRecentSamples() {
+        BootTimes times = new BootTimes();
+        assertEquals(-1, times.get("tmplt"));
+
+        times.record("tmplt", 1000);
+        assertEquals(1000, times.get("tmplt"));
+
+        times.record("tmplt", 2000);
+        assertEquals(1300, times.get("tmplt"));
+
+        for (int i = 0; i < 50; i++) {
+            times.record("tmplt", 5000);
+        }
+        assertEquals(5000, times.get("tmplt"));
+        assertEquals(-1, times.get("other"));
+    }
+}
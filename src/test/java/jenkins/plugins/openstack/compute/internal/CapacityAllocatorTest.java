@@ -0,0 +1,65 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CapacityAllocatorTest {
+
+    @Test
+    public void drainInOrder() {
+        CapacityAllocator<String> allocator = new CapacityAllocator<>(10);
+        allocator.add("a", 2);
+        allocator.add("none", 0);
+        allocator.add("b", 1);
+        allocator.add("c", 3);
+
+        assertEquals(Arrays.asList("a", "a", "b", "c", "c", "c"), drain(allocator));
+    }
+
+    @Test
+    public void respectGlobalCapacity() {
+        CapacityAllocator<String> allocator = new CapacityAllocator<>(3);
+        allocator.add("a", 2);
+        allocator.add("b", 500);
+        assertEquals(3, allocator.getRemaining());
+        assertEquals(3, allocator.getRemaining("b"));
+
+        assertEquals(Arrays.asList("a", "a", "b"), drain(allocator));
+        assertEquals(0, allocator.getRemaining());
+
+        assertNull(new CapacityAllocator<String>(-1).next());
+    }
+
+    @Test
+    public void takeSpecificCandidate() {
+        CapacityAllocator<String> allocator = new CapacityAllocator<>(3);
+        allocator.add("a", 1);
+        allocator.add("b", 2);
+
+        assertTrue(allocator.take("b"));
+        assertEquals(Arrays.asList("a", "b"), allocator.getAvailable());
+        assertTrue(allocator.take("a"));
+        assertFalse(allocator.take("a"));
+        assertFalse(allocator.take("no_such_candidate"));
+        assertEquals(Arrays.asList("b"), allocator.getAvailable());
+
+        assertEquals(Arrays.asList("b"), drain(allocator));
+        assertEquals(Arrays.<String>asList(), allocator.getAvailable());
+    }
+
+    private static List<String> drain(CapacityAllocator<String> allocator) {
+        List<String> out = new ArrayList<>();
+        for (String s = allocator.next(); s != null; s = allocator.next()) {
+            out.add(s);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,147 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class CapacityReservationsTest {
+
+    private static final ServerCounts NONE = new ServerCounts(0, Collections.<String, Integer>emptyMap());
+
+    @Test
+    public void respectCaps() {
+        CapacityReservations reservations = new CapacityReservations();
+        ServerCounts running = new ServerCounts(1, Collections.singletonMap("foo", 1));
+
+        CapacityReservations.Reservation foo = reservations.reserve("foo", 2, 3, running);
+        assertNotNull(foo);
+        assertNull("Template cap reached", reservations.reserve("foo", 2, 3, running));
+        assertEquals(1, reservations.getTotal());
+
+        CapacityReservations.Reservation bar = reservations.reserve("bar", 5, 3, running);
+        assertNotNull(bar);
+        assertNull("Global cap reached", reservations.reserve("bar", 5, 3, running));
+        assertEquals(2, reservations.getTotal());
+        assertEquals(1, reservations.getTemplate("bar"));
+
+        foo.release();
+        foo.release();
+        assertEquals(1, reservations.getTotal());
+        assertEquals(0, reservations.getTemplate("foo"));
+        assertNotNull(reservations.reserve("foo", 2, 3, running));
+    }
+
+    @Test
+    public void stopCountingBootedServers() {
+        CapacityReservations reservations = new CapacityReservations();
+        Resources size = new Resources(2, 4096);
+        CapacityReservations.Reservation first = reservations.reserve("foo", 5, 5, NONE, size, Resources.UNLIMITED);
+        CapacityReservations.Reservation second = reservations.reserve("foo", 5, 5, NONE, size, Resources.UNLIMITED);
+        assertNotNull(first);
+        assertNotNull(second);
+
+        reservations.booted("bar", 1);
+        assertEquals(2, reservations.getTotal());
+
+        // Counted as running by the inventory from now on
+        reservations.booted("foo", 1);
+        assertEquals(1, reservations.getTotal());
+        assertEquals(1, reservations.getTemplate("foo"));
+        assertEquals(size, reservations.getResources());
+
+        first.release();
+        second.release();
+        assertEquals(0, reservations.getTotal());
+        assertEquals(0, reservations.getTemplate("foo"));
+        assertEquals(Resources.NONE, reservations.getResources());
+
+        reservations.booted("foo", 1);
+        assertEquals(0, reservations.getTotal());
+    }
+
+    @Test
+    public void countBootedServersAgainstOlderCounts() {
+        CapacityReservations reservations = new CapacityReservations();
+        ServerCounts before = new ServerCounts(1, Collections.singletonMap("foo", 1), 7);
+        CapacityReservations.Reservation reservation = reservations.reserve("foo", 3, 3, before);
+        assertNotNull(reservation);
+
+        // Server put to the inventory as version 8
+        reservations.booted("foo", 8);
+        ServerCounts after = new ServerCounts(2, Collections.singletonMap("foo", 2), 8);
+
+        assertNull("Booted server missing in older counts", reservations.reserve("foo", 2, 2, before));
+        assertNull("Booted server missing in counts of unknown version", reservations.reserve("foo", 1, 1, NONE));
+        assertNotNull("Booted server counted once", reservations.reserve("foo", 3, 3, after));
+        assertEquals(1, reservations.getTotal());
+
+        reservation.release();
+        assertNotNull("Released reservation is not counted", reservations.reserve("foo", 3, 3, before));
+    }
+
+    @Test
+    public void forcedReservationCounts() {
+        CapacityReservations reservations = new CapacityReservations();
+        CapacityReservations.Reservation forced = reservations.forceReserve("foo");
+        assertNull(reservations.reserve("foo", 1, 5, NONE));
+
+        forced.release();
+        assertNotNull(reservations.reserve("foo", 1, 5, NONE));
+    }
+
+    @Test
+    public void respectResources() {
+        CapacityReservations reservations = new CapacityReservations();
+        Resources size = new Resources(2, 4096);
+        Resources headroom = new Resources(5, 16384);
+
+        CapacityReservations.Reservation first = reservations.reserve("foo", 10, 10, NONE, size, headroom);
+        assertNotNull(first);
+        assertNotNull(reservations.reserve("foo", 10, 10, NONE, size, headroom));
+        assertNull("vCPUs exhausted", reservations.reserve("foo", 10, 10, NONE, size, headroom));
+        assertEquals(new Resources(4, 8192), reservations.getResources());
+        assertEquals("Failed reservation does not hold capacity", 2, reservations.getTotal());
+
+        first.release();
+        first.release();
+        assertEquals(size, reservations.getResources());
+        assertNull("RAM exhausted", reservations.reserve("foo", 10, 10, NONE, size, new Resources(10, 6000)));
+        assertNotNull(reservations.reserve("foo", 10, 10, NONE, Resources.NONE, Resources.NONE));
+    }
+
+    @Test
+    public void doNotOvershootConcurrently() throws Exception {
+        final CapacityReservations reservations = new CapacityReservations();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String template = "t" + (i % 3);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override public Boolean call() {
+                        return reservations.reserve(template, 5, 10, NONE) != null;
+                    }
+                }));
+            }
+
+            int reserved = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) reserved++;
+            }
+            assertEquals(10, reserved);
+            assertEquals(10, reservations.getTotal());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
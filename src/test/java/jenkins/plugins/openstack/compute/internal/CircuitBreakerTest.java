@@ -0,0 +1,97 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void openAfterConsecutiveFailures() {
+        CircuitBreaker b = new CircuitBreaker("cloud", 3, 1000, 60000);
+        b.failure("a");
+        b.failure("b");
+        b.success(10);
+        b.failure("c");
+        b.failure("d");
+        assertEquals(CircuitBreaker.State.CLOSED, b.getState());
+        assertTrue(b.allowRequest());
+
+        b.failure("e");
+        assertEquals(CircuitBreaker.State.OPEN, b.getState());
+        assertEquals("e", b.getLastFailure());
+        assertFalse(b.allowRequest());
+    }
+
+    @Test
+    public void slowCallIsFailure() {
+        CircuitBreaker b = new CircuitBreaker("cloud", 1, 1000, 60000);
+        b.success(1001);
+        assertEquals(CircuitBreaker.State.OPEN, b.getState());
+    }
+
+    @Test
+    public void halfOpen() throws Exception {
+        CircuitBreaker b = new CircuitBreaker("cloud", 1, 1000, 0);
+        b.failure("a");
+        assertTrue(b.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.getState());
+
+        b.failure("b");
+        assertEquals(CircuitBreaker.State.OPEN, b.getState());
+
+        assertTrue(b.allowRequest());
+        b.success(10);
+        assertEquals(CircuitBreaker.State.CLOSED, b.getState());
+    }
+
+    @Test
+    public void halfOpenLetsSingleProbeThrough() throws Exception {
+        CircuitBreaker b = new CircuitBreaker("cloud", 1, 1000, 100);
+        b.failure("a");
+        assertFalse(b.allowRequest());
+
+        Thread.sleep(150);
+        assertTrue(b.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.getState());
+        assertFalse(b.allowRequest());
+        assertFalse(b.wouldAllowRequest());
+
+        b.success(10);
+        assertEquals(CircuitBreaker.State.CLOSED, b.getState());
+        assertTrue(b.allowRequest());
+        assertTrue(b.allowRequest());
+    }
+
+    @Test
+    public void replaceLostProbe() throws Exception {
+        CircuitBreaker b = new CircuitBreaker("cloud", 1, 1000, 100);
+        b.failure("a");
+        Thread.sleep(150);
+        assertTrue(b.allowRequest());
+        assertFalse(b.allowRequest());
+
+        // Probe never reported back
+        Thread.sleep(150);
+        assertTrue(b.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.getState());
+    }
+
+    @Test
+    public void wouldAllowRequestDoesNotClaimProbe() throws Exception {
+        CircuitBreaker b = new CircuitBreaker("cloud", 1, 1000, 100);
+        assertTrue(b.wouldAllowRequest());
+
+        b.failure("a");
+        assertFalse(b.wouldAllowRequest());
+
+        Thread.sleep(150);
+        assertTrue(b.wouldAllowRequest());
+        assertTrue(b.wouldAllowRequest());
+        assertEquals(CircuitBreaker.State.OPEN, b.getState());
+        assertTrue(b.allowRequest());
+        assertFalse(b.wouldAllowRequest());
+    }
+}
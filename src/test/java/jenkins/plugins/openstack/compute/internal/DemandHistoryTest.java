@@ -0,0 +1,75 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class DemandHistoryTest {
+
+    private static final long PERIOD = TimeUnit.MINUTES.toMillis(15);
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+    // Beginning of a week in local time
+    private static final long START = 0 - TimeZone.getDefault().getOffset(0);
+
+    @Test
+    public void forecastWeeklyPeak() {
+        DemandHistory history = new DemandHistory(15);
+        assertEquals(0, history.forecast(START, "label", PERIOD));
+
+        // Peak of 4 executors in the second period of the week
+        history.record(START, "label", 1);
+        history.record(START + PERIOD, "label", 2);
+        history.record(START + PERIOD + 1000, "label", 4);
+        history.record(START + PERIOD + 2000, "label", 3);
+        assertTrue(history.record(START + 2 * PERIOD, "label", 0));
+        assertFalse(history.record(START + 2 * PERIOD + 1000, "label", 0));
+
+        // Next week
+        assertEquals(1, history.forecast(START + WEEK, "label", 0));
+        assertEquals(4, history.forecast(START + WEEK, "label", PERIOD));
+        assertEquals(4, history.forecast(START + WEEK + PERIOD, "label", 0));
+        assertEquals(0, history.forecast(START + WEEK + 2 * PERIOD, "label", PERIOD));
+        assertEquals(0, history.forecast(START + WEEK, "no_such_label", PERIOD));
+    }
+
+    @Test
+    public void reportAccuracy() {
+        DemandHistory history = new DemandHistory(15);
+        history.record(START, "label", 4);
+        history.record(START + PERIOD, "label", 0);
+
+        // Observed for the first time, nothing to evaluate
+        DemandHistory.Accuracy accuracy = history.getAccuracy(START + WEEK, 0).get(0);
+        assertEquals("label", accuracy.getLabel());
+        assertEquals(4, accuracy.getForecast());
+        assertEquals(0, accuracy.getPeriods());
+
+        history.record(START + WEEK, "label", 2);
+        history.record(START + WEEK + PERIOD, "label", 0);
+
+        accuracy = history.getAccuracy(START + 2 * WEEK, 0).get(0);
+        assertEquals(3, accuracy.getForecast());
+        assertEquals(1, accuracy.getPeriods());
+        assertEquals(2.0, accuracy.getMeanError(), 0);
+        assertEquals(2.0, accuracy.getBias(), 0);
+        assertEquals(2.0, accuracy.getMeanDemand(), 0);
+    }
+
+    @Test
+    public void forgetLabels() {
+        DemandHistory history = new DemandHistory(15);
+        history.record(START, "a", 1);
+        history.record(START, "b", 1);
+        history.retain(Arrays.asList("b", "c"));
+
+        List<String> labels = history.getLabels();
+        assertEquals(Arrays.asList("b"), labels);
+    }
+}
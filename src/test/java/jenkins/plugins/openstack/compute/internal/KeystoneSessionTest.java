@@ -0,0 +1,138 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openstack4j.api.OSClient;
+import org.openstack4j.api.exceptions.AuthenticationException;
+import org.openstack4j.model.compute.ActionResponse;
+import org.openstack4j.model.identity.Access;
+import org.openstack4j.model.identity.Token;
+
+public class KeystoneSessionTest {
+
+    private final AtomicInteger authentications = new AtomicInteger();
+
+    @Test
+    public void keepValidToken() {
+        Access access = access(TimeUnit.HOURS.toMillis(1));
+        KeystoneSession session = session(access);
+
+        assertSame(access, session.getAccess());
+        assertSame(access, session.getAccess());
+        assertEquals(1, authentications.get());
+    }
+
+    @Test
+    public void renewTokenAboutToExpire() {
+        Access expiring = access(KeystoneSession.EXPIRATION_MARGIN / 2);
+        Access renewed = access(TimeUnit.HOURS.toMillis(1));
+        KeystoneSession session = session(expiring, renewed);
+
+        assertSame(renewed, session.getAccess());
+        assertSame(renewed, session.getAccess());
+        assertEquals(2, authentications.get());
+    }
+
+    @Test
+    public void shareAccessBetweenRegions() {
+        Access access = access(TimeUnit.HOURS.toMillis(1));
+        KeystoneSession session = session(access);
+
+        OSClient east = session.bind("east");
+        assertSame(access, east.getAccess());
+        OSClient west = session.bind("west");
+        assertSame(access, west.getAccess());
+        assertEquals(1, authentications.get());
+    }
+
+    @Test
+    public void reauthenticateWhenTokenRejected() throws Exception {
+        Access revoked = access(TimeUnit.HOURS.toMillis(1));
+        Access renewed = access(TimeUnit.HOURS.toMillis(1));
+        final KeystoneSession session = session(revoked, renewed);
+
+        final AtomicInteger calls = new AtomicInteger();
+        String result = session.reauthenticating(new Callable<String>() {
+            @Override public String call() {
+                if (calls.incrementAndGet() == 1) throw new AuthenticationException("Unauthorized", 401);
+                return "It works";
+            }
+        }).call();
+
+        assertEquals("It works", result);
+        assertEquals(2, calls.get());
+        assertSame(renewed, session.getAccess());
+        assertEquals(2, authentications.get());
+
+        // Other thread failing with the revoked token does not authenticate again
+        session.invalidate(revoked);
+        assertEquals(2, authentications.get());
+    }
+
+    @Test
+    public void reauthenticateWhenActionRejected() throws Exception {
+        Access revoked = access(TimeUnit.HOURS.toMillis(1));
+        Access renewed = access(TimeUnit.HOURS.toMillis(1));
+        KeystoneSession session = session(revoked, renewed);
+
+        final AtomicInteger calls = new AtomicInteger();
+        ActionResponse result = session.reauthenticating(new Callable<ActionResponse>() {
+            @Override public ActionResponse call() {
+                return calls.incrementAndGet() == 1
+                        ? ActionResponse.actionFailed("Unauthorized", 401)
+                        : ActionResponse.actionSuccess()
+                ;
+            }
+        }).call();
+
+        assertTrue(result.isSuccess());
+        assertSame(renewed, session.getAccess());
+    }
+
+    @Test
+    public void reauthenticateOnlyOnce() throws Exception {
+        KeystoneSession session = session(access(TimeUnit.HOURS.toMillis(1)), access(TimeUnit.HOURS.toMillis(1)));
+
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            session.reauthenticating(new Callable<String>() {
+                @Override public String call() {
+                    calls.incrementAndGet();
+                    throw new AuthenticationException("Unauthorized", 401);
+                }
+            }).call();
+            fail();
+        } catch (AuthenticationException ex) {
+            assertEquals(401, ex.getStatus());
+        }
+        assertEquals(2, calls.get());
+        assertEquals(2, authentications.get());
+    }
+
+    private Access access(long expiresIn) {
+        Token token = mock(Token.class);
+        when(token.getExpires()).thenReturn(new Date(System.currentTimeMillis() + expiresIn));
+        Access access = mock(Access.class);
+        when(access.getToken()).thenReturn(token);
+        return access;
+    }
+
+    private KeystoneSession session(final Access... accesses) {
+        return new KeystoneSession("http://keystone.example.com:5000/v2.0", "tenant:user", null) {
+            @Override Access authenticate() {
+                return accesses[authentications.getAndIncrement()];
+            }
+        };
+    }
+}
@@ -2,19 +2,37 @@ package jenkins.plugins.openstack.compute.internal;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Test;
+import org.openstack4j.api.OSClient;
+import org.openstack4j.api.compute.ComputeService;
+import org.openstack4j.api.compute.FlavorService;
+import org.openstack4j.api.compute.ServerService;
+import org.openstack4j.model.compute.Flavor;
 import org.openstack4j.model.compute.Fault;
 import org.openstack4j.model.compute.Server;
+import org.openstack4j.model.compute.ServerCreate;
 import org.openstack4j.model.compute.builder.ServerCreateBuilder;
 
 public class OpenstackTest {
 
     @Test
     public void deleteAfterFailedBoot() {
-        Openstack os = mock(Openstack.class, CALLS_REAL_METHODS);
+        Openstack os = spy(new Openstack(mock(OSClient.class)));
         Server server = mock(Server.class);
         when(server.getStatus()).thenReturn(Server.Status.ERROR);
         when(server.getVmState()).thenReturn(null);
@@ -38,4 +56,148 @@ public class OpenstackTest {
 
         verify(os, times(1)).destroyServer(server);
     }
+
+    @Test
+    public void failedBootsOpenCircuit() {
+        Server booting = server(Server.Status.BUILD);
+        Server failed = server(Server.Status.ERROR);
+        OSClient client = mock(OSClient.class);
+        ComputeService compute = mock(ComputeService.class);
+        ServerService servers = mock(ServerService.class);
+        when(client.compute()).thenReturn(compute);
+        when(compute.servers()).thenReturn(servers);
+        when(servers.boot(any(ServerCreate.class))).thenReturn(booting);
+        when(servers.waitForServerStatus("42", Server.Status.ACTIVE, 1000, TimeUnit.MILLISECONDS)).thenReturn(failed);
+
+        CircuitBreaker breaker = new CircuitBreaker("cloud", 2, 1000, 60000);
+        Openstack os = spy(new Openstack(client, breaker));
+        doReturn("http://jenkins.example.com/").when(os).instanceFingerprint();
+        doNothing().when(os).destroyServer(any(Server.class));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                os.bootAndWaitActive(serverRequest(), 1000);
+                fail();
+            } catch (Openstack.ActionFailed ex) {
+                assertThat(ex.getMessage(), containsString("status=ERROR"));
+            }
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        verify(os, times(2)).destroyServer(failed);
+    }
+
+    private ServerCreateBuilder serverRequest() {
+        ServerCreate create = mock(ServerCreate.class);
+        when(create.getName()).thenReturn("server");
+        when(create.getMetaData()).thenReturn(Collections.<String, String>emptyMap());
+        ServerCreateBuilder request = mock(ServerCreateBuilder.class);
+        doReturn(create).when(request).build();
+        return request;
+    }
+
+    @Test
+    public void reuseListings() {
+        OSClient client = mock(OSClient.class);
+        ComputeService compute = mock(ComputeService.class);
+        FlavorService flavors = mock(FlavorService.class);
+        when(client.compute()).thenReturn(compute);
+        when(compute.flavors()).thenReturn(flavors);
+        Flavor b = mock(Flavor.class);
+        when(b.getName()).thenReturn("b");
+        Flavor a = mock(Flavor.class);
+        when(a.getName()).thenReturn("a");
+        doReturn(Arrays.asList(b, a)).when(flavors).list();
+
+        Openstack os = new Openstack(client);
+        assertEquals(Arrays.asList(a, b), os.getSortedFlavors());
+        assertEquals(Arrays.asList(a, b), os.getSortedFlavors());
+
+        verify(flavors, times(1)).list();
+
+        // Shared between callers
+        try {
+            os.getSortedFlavors().clear();
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        assertEquals(Arrays.asList(a, b), os.getSortedFlavors());
+    }
+
+    @Test
+    public void waitActiveAsync() throws Exception {
+        Server server = server(Server.Status.ACTIVE);
+        Openstack os = asyncOpenstack(server);
+
+        assertSame(server, os.waitActiveAsync(server, 60000).get());
+        verify(os, never()).destroyServer(any(Server.class));
+    }
+
+    @Test
+    public void deleteServerFailedToBootAsync() throws Exception {
+        Server server = server(Server.Status.ERROR);
+        Openstack os = asyncOpenstack(server);
+
+        try {
+            os.waitActiveAsync(server, 60000).get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause().getMessage(), containsString("status=ERROR"));
+        }
+        verify(os).destroyServer(server);
+    }
+
+    @Test
+    public void deleteServerNotActiveInTimeAsync() throws Exception {
+        Server server = server(Server.Status.BUILD);
+        Openstack os = asyncOpenstack(server);
+
+        try {
+            os.waitActiveAsync(server, 0).get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause().getMessage(), containsString("in time"));
+        }
+        verify(os).destroyServer(server);
+    }
+
+    @Test
+    public void deleteServerNoLongerWaitedFor() throws Exception {
+        Server server = server(Server.Status.BUILD);
+        Openstack os = asyncOpenstack(server);
+
+        Future<Server> active = os.waitActiveAsync(server, 60000);
+        verify(os.timer()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        verify(os, never()).destroyServer(any(Server.class));
+
+        assertTrue(active.cancel(false));
+        verify(os).destroyServer(server);
+    }
+
+    private Server server(Server.Status status) {
+        Server server = mock(Server.class);
+        when(server.getId()).thenReturn("42");
+        when(server.getName()).thenReturn("server");
+        when(server.getStatus()).thenReturn(status);
+        when(server.getMetadata()).thenReturn(Collections.<String, String>emptyMap());
+        return server;
+    }
+
+    // Run async operations in calling thread never getting to the scheduled ones
+    private Openstack asyncOpenstack(Server server) {
+        OSClient client = mock(OSClient.class);
+        ComputeService compute = mock(ComputeService.class);
+        ServerService servers = mock(ServerService.class);
+        when(client.compute()).thenReturn(compute);
+        when(compute.servers()).thenReturn(servers);
+        doReturn(server).when(servers).get("42");
+
+        Openstack os = spy(new Openstack(client));
+        doReturn(MoreExecutors.sameThreadExecutor()).when(os).executor();
+        doReturn(mock(ScheduledExecutorService.class)).when(os).timer();
+        doNothing().when(os).destroyServer(any(Server.class));
+        return os;
+    }
 }
@@ -0,0 +1,103 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenkins.plugins.openstack.compute.JCloudsSlaveTemplate;
+import org.junit.Test;
+import org.openstack4j.model.compute.Server;
+
+public class ResourceBudgetTest {
+
+    private static final Resources SMALL = new Resources(1, 2048);
+    private static final Resources LARGE = new Resources(4, 8192);
+
+    @Test
+    public void sumResourcesOfRunningServers() {
+        ResourceBudget budget = ResourceBudget.of(Arrays.asList(
+                server("small", "foo"), server("large", "foo"), server("large", "bar"), server("gone", "bar"), server("small", null)
+        ), flavors(), null);
+
+        assertEquals(new Resources(10, 20480), budget.getUsed());
+        assertEquals(new Resources(5, 10240), budget.getUsed("foo"));
+        assertEquals(LARGE, budget.getUsed("bar"));
+        assertEquals(Resources.NONE, budget.getUsed("baz"));
+
+        assertEquals(LARGE, budget.sizeOf("large"));
+        assertEquals(Resources.NONE, budget.sizeOf("gone"));
+        assertEquals(Resources.NONE, budget.sizeOf(null));
+    }
+
+    @Test
+    public void sumResourcesOfListedServers() throws Exception {
+        ServerListing listing = new ServerListing("jenkins-instance", "http://jenkins.example.com/", null);
+        String json = "{'servers': ["
+                + "{'id': 'a', 'flavor': {'id': 'large', 'links': []}, 'metadata': {'jenkins-instance': 'http://jenkins.example.com/', 'jenkins-template-name': 'foo'}},"
+                + "{'id': 'b', 'flavor': {'id': 'small'}, 'metadata': {'jenkins-instance': 'http://jenkins.example.com/'}},"
+                + "{'id': 'c', 'flavor': {'id': 'large'}, 'metadata': {'jenkins-instance': 'http://other.example.com/'}}"
+                + "]}";
+        List<Server> servers = listing.parse(new ByteArrayInputStream(json.replace('\'', '"').getBytes("UTF-8")), 10).servers;
+
+        ResourceBudget budget = ResourceBudget.of(servers, flavors(), null);
+        assertEquals(new Resources(5, 10240), budget.getUsed());
+        assertEquals(LARGE, budget.getUsed("foo"));
+    }
+
+    @Test
+    public void headroomRespectsCapAndQuota() {
+        ResourceBudget budget = ResourceBudget.of(Arrays.asList(server("large", "foo")), flavors(), new Resources(8, 65536));
+
+        assertEquals(new Resources(8, 65536), budget.getHeadroom(Resources.UNLIMITED));
+        assertEquals(new Resources(2, 65536), budget.getHeadroom(Resources.cap(6, null)));
+        assertEquals(new Resources(8, 0), budget.getHeadroom(Resources.cap(null, 4096)));
+
+        ResourceBudget noQuota = ResourceBudget.of(Collections.<Server>emptyList(), flavors(), null);
+        assertEquals(Resources.UNLIMITED, noQuota.getHeadroom(Resources.UNLIMITED));
+    }
+
+    @Test
+    public void templateCap() {
+        ResourceBudget budget = ResourceBudget.of(Arrays.asList(server("large", "foo")), flavors(), null);
+
+        assertEquals("Instance cap", 3, budget.getTemplateCap("foo", 3, 1, LARGE, Resources.UNLIMITED));
+        assertEquals("vCPU cap", 2, budget.getTemplateCap("foo", 10, 1, LARGE, Resources.cap(11, null)));
+        assertEquals("RAM cap", 1, budget.getTemplateCap("foo", 10, 1, LARGE, Resources.cap(null, 16383)));
+        assertEquals("Cap exceeded, no room left", 1, budget.getTemplateCap("foo", 10, 1, LARGE, Resources.cap(2, null)));
+        assertEquals("Size not known", 10, budget.getTemplateCap("foo", 10, 1, Resources.NONE, Resources.cap(2, null)));
+    }
+
+    @Test
+    public void countResources() {
+        assertEquals(4, new Resources(9, 40000).count(new Resources(2, 8192)));
+        assertEquals(2, new Resources(9, 20000).count(new Resources(2, 8192)));
+        assertEquals(Integer.MAX_VALUE, Resources.UNLIMITED.count(SMALL));
+        assertEquals(Integer.MAX_VALUE, SMALL.count(Resources.NONE));
+        assertEquals(Resources.UNLIMITED, Resources.UNLIMITED.minus(LARGE));
+        assertEquals(Resources.NONE, SMALL.minus(LARGE));
+    }
+
+    private static Map<String, Resources> flavors() {
+        Map<String, Resources> flavors = new HashMap<>();
+        flavors.put("small", SMALL);
+        flavors.put("large", LARGE);
+        return flavors;
+    }
+
+    private static Server server(String flavor, String template) {
+        Server server = mock(Server.class);
+        when(server.getFlavorId()).thenReturn(flavor);
+        when(server.getMetadata()).thenReturn(template == null
+                ? Collections.<String, String>emptyMap()
+                : Collections.singletonMap(JCloudsSlaveTemplate.OPENSTACK_TEMPLATE_NAME_KEY, template)
+        );
+        return server;
+    }
+}
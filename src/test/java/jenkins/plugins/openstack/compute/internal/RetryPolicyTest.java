@@ -0,0 +1,97 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openstack4j.api.exceptions.ClientResponseException;
+import org.openstack4j.api.exceptions.ResponseException;
+import org.openstack4j.api.exceptions.ServerResponseException;
+import org.openstack4j.model.compute.ActionResponse;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(1, 10, 3, 0);
+
+    @Test
+    public void classify() {
+        assertTrue(RetryPolicy.isRetryable(429, false));
+        assertTrue(RetryPolicy.isRetryable(413, false));
+        assertTrue(RetryPolicy.isRetryable(503, false));
+        assertTrue(RetryPolicy.isRetryable(500, true));
+        assertFalse(RetryPolicy.isRetryable(500, false));
+        assertFalse(RetryPolicy.isRetryable(400, true));
+        assertFalse(RetryPolicy.isRetryable(404, true));
+        assertFalse(RetryPolicy.isRetryable(new NullPointerException(), true));
+    }
+
+    @Test
+    public void retryTransientFailure() {
+        final AtomicInteger attempts = new AtomicInteger();
+        String ret = policy.call("test", true, new Callable<String>() {
+            @Override public String call() {
+                if (attempts.incrementAndGet() < 3) throw new ServerResponseException("Unavailable", 503);
+                return "done";
+            }
+        });
+        assertEquals("done", ret);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void giveUpEventually() {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            policy.call("test", true, new Callable<String>() {
+                @Override public String call() {
+                    attempts.incrementAndGet();
+                    throw new ClientResponseException("Too many requests", 429);
+                }
+            });
+            fail();
+        } catch (ResponseException ex) {
+            assertEquals(429, ex.getStatus());
+        }
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void doNotRetryFatalFailure() {
+        final AtomicInteger attempts = new AtomicInteger();
+        ActionResponse res = policy.call("test", true, new Callable<ActionResponse>() {
+            @Override public ActionResponse call() {
+                attempts.incrementAndGet();
+                return ActionResponse.actionFailed("Bad request", 400);
+            }
+        });
+        assertFalse(res.isSuccess());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void delay() {
+        RetryPolicy.Backoff backoff = new RetryPolicy(100, 1000, 10, 0).backoff();
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.nextDelay(null), allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(101L)));
+        }
+        assertEquals(500L, backoff.nextDelay(500L));
+        // Server asking for too long delay is not honored past the limit
+        assertEquals(1000L, backoff.nextDelay(5000L));
+    }
+
+    @Test
+    public void parseRetryAfter() {
+        assertEquals(120000L, (long) HttpTransport.parseRetryAfter("120"));
+        assertEquals(0L, (long) HttpTransport.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(null, HttpTransport.parseRetryAfter("tomorrow"));
+    }
+}
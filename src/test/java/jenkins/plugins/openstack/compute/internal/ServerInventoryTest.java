@@ -0,0 +1,176 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openstack4j.model.compute.Server;
+
+public class ServerInventoryTest {
+
+    @Test
+    public void applyChanges() {
+        ServerInventory inventory = new ServerInventory();
+        assertTrue(inventory.isStale(System.currentTimeMillis()));
+
+        Server a = server("a");
+        Server b = server("b");
+        inventory.reset(Arrays.asList(a, b), System.currentTimeMillis());
+        assertFalse(inventory.isStale(System.currentTimeMillis()));
+        assertEquals(Arrays.asList(a, b), inventory.getServers());
+
+        Server c = server("c");
+        inventory.put(c);
+        inventory.remove("a");
+        assertEquals(Arrays.asList(b, c), inventory.getServers());
+    }
+
+    @Test
+    public void keepChangesMadeWhileListing() {
+        ServerInventory inventory = new ServerInventory();
+        Server a = server("a");
+        Server b = server("b");
+        inventory.reset(Arrays.asList(a, b), System.currentTimeMillis() - 10000);
+
+        long started = System.currentTimeMillis() - 1000;
+        Server booted = server("booted");
+        inventory.put(booted);
+        inventory.remove("b");
+
+        // Listing started before the changes
+        Server listedA = server("a");
+        List<ServerInventory.Change> changes = inventory.reset(Arrays.asList(listedA, server("b")), started);
+        assertEquals(Arrays.asList(listedA, booted), inventory.getServers());
+        assertEquals(1, changes.size());
+        assertEquals(a, changes.get(0).before);
+        assertEquals(listedA, changes.get(0).after);
+
+        // Changes made before the listing started are overridden
+        changes = inventory.reset(Collections.<Server>emptyList(), System.currentTimeMillis() + 1);
+        assertEquals(Collections.<Server>emptyList(), inventory.getServers());
+        assertEquals(2, changes.size());
+        assertNull(changes.get(1).after);
+    }
+
+    @Test
+    public void doNotReportStoppedServersDeleted() {
+        ServerInventory inventory = new ServerInventory();
+        Server active = server("a", "foo");
+        Server other = server("b", "foo");
+        inventory.reset(Arrays.asList(active, other), System.currentTimeMillis() - 10000);
+        assertEquals(2, inventory.getCounts().getTotal());
+
+        // Poll reports the server stopped, it is no longer occupied but it was not deleted
+        Server stopped = server("a", "foo", Server.Status.SHUTOFF);
+        assertNull(inventory.update(stopped));
+        assertEquals(Arrays.asList(other), inventory.getServers());
+        assertEquals(1, inventory.getCounts().getTemplate("foo"));
+
+        // Complete listing agrees
+        List<ServerInventory.Change> changes = inventory.reset(Arrays.asList(stopped, other), System.currentTimeMillis());
+        assertEquals(Collections.<ServerInventory.Change>emptyList(), changes);
+        assertEquals(Arrays.asList(other), inventory.getServers());
+
+        // Started again
+        Server restarted = server("a", "foo");
+        ServerInventory.Change change = inventory.update(restarted);
+        assertNull(change.before);
+        assertEquals(restarted, change.after);
+        assertEquals(2, inventory.getCounts().getTemplate("foo"));
+
+        // Stopped server missing from complete listing is not reported either
+        inventory.update(server("a", "foo", Server.Status.SHUTOFF));
+        assertEquals(Collections.<ServerInventory.Change>emptyList(), inventory.reset(Arrays.asList(other), System.currentTimeMillis() + 1));
+
+        // Deletion is
+        change = inventory.update(server("b", "foo", Server.Status.DELETED));
+        assertEquals(other, change.before);
+        assertNull(change.after);
+        assertNull(inventory.update(server("b", "foo", Server.Status.DELETED)));
+    }
+
+    @Test
+    public void stoppedServerListedWhileItWasOccupied() {
+        ServerInventory inventory = new ServerInventory();
+        Server active = server("a");
+        inventory.reset(Arrays.asList(active), System.currentTimeMillis() - 10000);
+
+        // Stopped between the delta polls, found by complete listing
+        List<ServerInventory.Change> changes = inventory.reset(
+                Arrays.asList(server("a", null, Server.Status.SHUTOFF)), System.currentTimeMillis()
+        );
+        assertEquals(Collections.<ServerInventory.Change>emptyList(), changes);
+        assertEquals(Collections.<Server>emptyList(), inventory.getServers());
+    }
+
+    @Test
+    public void changesSinceLastPollInUtc() {
+        ServerInventory inventory = new ServerInventory();
+        inventory.reset(Arrays.<Server>asList(), 0);
+        inventory.polled(1000L * 60 * 60 * 24);
+        // Clock margin of a minute
+        assertEquals("1970-01-01T23:59:00Z", inventory.changesSince());
+    }
+
+    @Test
+    public void readOnlyWhenFresh() {
+        ServerInventory inventory = new ServerInventory();
+        assertNull(inventory.getServers(1000));
+        assertEquals(-1, inventory.getAge());
+
+        inventory.reset(Arrays.asList(server("a")), System.currentTimeMillis() - 5000);
+        assertNull(inventory.getServers(1000));
+        assertEquals(1, inventory.getServers(10000).size());
+
+        inventory.polled(System.currentTimeMillis());
+        assertEquals(1, inventory.getServers(1000).size());
+        assertTrue(inventory.getIdleTime() >= 0);
+    }
+
+    @Test
+    public void maintainCounts() {
+        ServerInventory inventory = new ServerInventory();
+        inventory.reset(Arrays.asList(server("a", "foo"), server("b", "foo"), server("c", null)), System.currentTimeMillis());
+        ServerCounts counts = inventory.getCounts();
+        assertEquals(3, counts.getTotal());
+        assertEquals(2, counts.getTemplate("foo"));
+        assertEquals(0, counts.getTemplate("bar"));
+
+        inventory.put(server("b", "bar")); // Replaced
+        inventory.remove("c");
+        inventory.remove("no_such_server");
+        counts = inventory.getCounts();
+        assertEquals(2, counts.getTotal());
+        assertEquals(1, counts.getTemplate("foo"));
+        assertEquals(1, counts.getTemplate("bar"));
+
+        inventory.remove("a");
+        assertEquals(0, inventory.getCounts().getTemplate("foo"));
+    }
+
+    private static Server server(String id) {
+        return server(id, null);
+    }
+
+    private static Server server(String id, String template) {
+        return server(id, template, Server.Status.ACTIVE);
+    }
+
+    private static Server server(String id, String template, Server.Status status) {
+        Server server = mock(Server.class);
+        when(server.getId()).thenReturn(id);
+        when(server.getStatus()).thenReturn(status);
+        if (template != null) {
+            when(server.getMetadata()).thenReturn(Collections.singletonMap("jenkins-template-name", template));
+        }
+        return server;
+    }
+}
@@ -0,0 +1,97 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openstack4j.model.compute.Address;
+import org.openstack4j.model.compute.Server;
+
+public class ServerListingTest {
+
+    private final ServerListing listing = new ServerListing("jenkins-instance", "http://jenkins.example.com/", "jenkins-tag");
+
+    @Test
+    public void keepOnlyServersWithFingerprint() throws Exception {
+        ServerListing.Page page;
+        try (InputStream in = getClass().getResourceAsStream("ServerListingTest/servers.json")) {
+            page = listing.parse(in, 1000);
+        }
+        assertEquals("no-metadata", page.marker);
+
+        List<Server> servers = page.servers;
+
+        assertEquals(1, servers.size());
+        Server server = servers.get(0);
+        assertEquals("ours-id", server.getId());
+        assertEquals("ours", server.getName());
+        assertEquals(Server.Status.BUILD, server.getStatus());
+        assertEquals("host2", server.getHostId());
+        assertEquals(2, server.getMetadata().size());
+        assertEquals("http://jenkins.example.com/", server.getMetadata().get("jenkins-instance"));
+        assertEquals("tmplt", server.getMetadata().get("jenkins-template-name"));
+
+        List<? extends Address> addresses = server.getAddresses().getAddresses("private");
+        assertEquals(2, addresses.size());
+        assertEquals("10.0.0.4", addresses.get(1).getAddr());
+        assertEquals("floating", addresses.get(1).getType());
+    }
+
+    @Test
+    public void lastPage() throws Exception {
+        ServerListing.Page page = listing.parse(json("{'servers': []}"), 2);
+        assertEquals(0, page.servers.size());
+        assertNull(page.marker);
+
+        page = listing.parse(json("{'servers': [{'id': 'a'}], 'servers_links': [{'rel': 'self', 'href': 'x'}]}"), 2);
+        assertEquals(0, page.servers.size());
+        assertNull(page.marker);
+    }
+
+    @Test
+    public void fullPageWithoutNextLink() throws Exception {
+        ServerListing.Page page = listing.parse(json("{'servers': [{'id': 'a'}, {'id': 'b'}]}"), 2);
+        assertEquals("b", page.marker);
+    }
+
+    @Test
+    public void reportUntaggedServers() throws Exception {
+        ServerListing.Page page = listing.parse(json("{'servers': ["
+                + "{'id': 'tagged', 'tags': ['a', 'jenkins-tag'], 'metadata': {'jenkins-instance': 'http://jenkins.example.com/'}},"
+                + "{'id': 'untagged', 'tags': [], 'metadata': {'jenkins-instance': 'http://jenkins.example.com/'}},"
+                + "{'id': 'foreign', 'tags': [], 'metadata': {'jenkins-instance': 'http://other.example.com/'}}"
+                + "]}"), 10);
+        assertEquals(2, page.servers.size());
+        assertEquals(Arrays.asList("untagged"), page.untagged);
+    }
+
+    @Test
+    public void reportDeletedServers() throws Exception {
+        ServerListing.Page page = listing.parse(json("{'servers': ["
+                + "{'id': 'deleted', 'status': 'DELETED', 'metadata': {}},"
+                + "{'id': 'active', 'status': 'ACTIVE', 'metadata': {}}"
+                + "]}"), 10);
+        assertEquals(0, page.servers.size());
+        assertEquals(Arrays.asList("deleted"), page.deleted);
+    }
+
+    @Test
+    public void doNotBindAddressesOfForeignServers() throws Exception {
+        // Nova lists addresses before metadata. Were the malformed addresses bound, the parsing would fail
+        ServerListing.Page page = listing.parse(json("{'servers': ["
+                + "{'id': 'foreign', 'addresses': {'private': 'malformed'}, 'metadata': {'jenkins-instance': 'http://other.example.com/'}},"
+                + "{'id': 'ours', 'addresses': {'private': [{'addr': '10.0.0.4'}]}, 'metadata': {'jenkins-instance': 'http://jenkins.example.com/'}}"
+                + "]}"), 10);
+        assertEquals(1, page.servers.size());
+        assertEquals("10.0.0.4", page.servers.get(0).getAddresses().getAddresses("private").get(0).getAddr());
+    }
+
+    private static InputStream json(String json) throws Exception {
+        return new ByteArrayInputStream(json.replace('\'', '"').getBytes("UTF-8"));
+    }
+}
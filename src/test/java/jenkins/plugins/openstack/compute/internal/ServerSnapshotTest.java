@@ -0,0 +1,65 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+import org.openstack4j.model.compute.Server;
+import org.openstack4j.openstack.compute.domain.NovaAddresses;
+import org.openstack4j.openstack.compute.domain.NovaServer;
+
+public class ServerSnapshotTest {
+
+    @Test
+    public void keepWhatSlaveNeeds() {
+        NovaServer server = server();
+        server.addresses.add("private", address("fixed", "10.0.0.1"));
+        server.addresses.add("private", address("floating", "42.42.42.42"));
+        server.metadata.put("jenkins-template-name", "tmplt");
+
+        ServerSnapshot snapshot = ServerSnapshot.of(server);
+        assertEquals("id", snapshot.getId());
+        assertEquals("name", snapshot.getName());
+        assertEquals("host", snapshot.getHostId());
+        assertEquals("tmplt", snapshot.getTemplate());
+        assertEquals("42.42.42.42", snapshot.getPublicAddress());
+        assertEquals("10.0.0.1", snapshot.getFixedAddress());
+
+        Server restored = snapshot.toServer();
+        assertEquals("id", restored.getId());
+        assertEquals("name", restored.getName());
+        assertEquals("tmplt", restored.getMetadata().get("jenkins-template-name"));
+    }
+
+    @Test
+    public void noAddresses() {
+        NovaServer server = server();
+        server.addresses = null;
+
+        ServerSnapshot snapshot = ServerSnapshot.of(server);
+        assertNull(snapshot.getPublicAddress());
+        assertNull(snapshot.getFixedAddress());
+        assertNull(snapshot.getTemplate());
+    }
+
+    private static NovaServer server() {
+        NovaServer server = new NovaServer();
+        server.id = "id";
+        server.name = "name";
+        server.hostId = "host";
+        server.addresses = new NovaAddresses();
+        server.metadata = new HashMap<>();
+        return server;
+    }
+
+    private static NovaAddresses.NovaAddress address(String type, String ip) {
+        NovaAddresses.NovaAddress address = mock(NovaAddresses.NovaAddress.class);
+        when(address.getType()).thenReturn(type);
+        when(address.getAddr()).thenReturn(ip);
+        return address;
+    }
+}
@@ -0,0 +1,61 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.openstack4j.core.transport.HttpResponse;
+
+public class ServerTagsTest {
+
+    private final ServerTags tags = new ServerTags();
+
+    @Test
+    public void filterOnlyOnceAllTagged() {
+        assertFalse(tags.canFilter());
+
+        long token = tags.listing();
+        tags.tagFailed("id", "Because");
+        tags.listed(token);
+        assertFalse(tags.canFilter());
+
+        tags.listed(tags.listing());
+        assertTrue(tags.canFilter());
+
+        tags.bootStarted();
+        assertFalse(tags.canFilter());
+        tags.bootTagged();
+        assertTrue(tags.canFilter());
+
+        tags.tagFailed("id", "Because");
+        assertFalse(tags.canFilter());
+    }
+
+    @Test
+    public void fallbackWhenMicroversionNotConfirmed() {
+        assertTrue(tags.accept(response(200, "2.26")));
+        assertTrue(tags.isSupported());
+
+        assertTrue(tags.accept(response(200, null)));
+        assertFalse(tags.isSupported());
+
+        tags.listed(tags.listing());
+        assertFalse(tags.canFilter());
+    }
+
+    @Test
+    public void repeatWhenMicroversionRejected() {
+        assertFalse(tags.accept(response(406, null)));
+        assertFalse(tags.isSupported());
+        assertTrue(tags.accept(response(406, null)));
+    }
+
+    private static HttpResponse response(int status, String version) {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        when(response.header("X-OpenStack-Nova-API-Version")).thenReturn(version);
+        return response;
+    }
+}
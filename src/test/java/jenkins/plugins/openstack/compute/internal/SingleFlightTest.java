@@ -0,0 +1,81 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String> sf = new SingleFlight<>();
+
+    @Test
+    public void coalesceConcurrentCalls() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Integer> call = new Callable<Integer>() {
+            @Override public Integer call() throws Exception {
+                started.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(new Callable<Integer>() {
+                @Override public Integer call() {
+                    return sf.call("key", call);
+                }
+            });
+            started.await();
+            final AtomicReference<Thread> joining = new AtomicReference<>();
+            Future<Integer> second = executor.submit(new Callable<Integer>() {
+                @Override public Integer call() {
+                    joining.set(Thread.currentThread());
+                    return sf.call("key", call);
+                }
+            });
+            // Second caller parks waiting for the first one, calling on its own it would block in the call and get 2
+            long timeout = System.currentTimeMillis() + 5000;
+            while (joining.get() == null || joining.get().getState() != Thread.State.WAITING) {
+                assertTrue("Second caller did not join in time", System.currentTimeMillis() < timeout);
+                Thread.yield();
+            }
+            release.countDown();
+
+            assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, (int) second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Not cached once completed
+        assertEquals(2, (int) sf.call("key", call));
+    }
+
+    @Test
+    public void propagateFailure() {
+        try {
+            sf.call("key", new Callable<Object>() {
+                @Override public Object call() {
+                    throw new Openstack.ActionFailed("It is broken");
+                }
+            });
+            fail();
+        } catch (Openstack.ActionFailed ex) {
+            assertEquals("It is broken", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.junit.Test;
+
+public class ThrottleTest {
+
+    @Test
+    public void unlimited() {
+        Throttle t = new Throttle("compute", 0);
+        for (int i = 0; i < 100; i++) {
+            t.acquire();
+        }
+
+        assertEquals(100, t.getRequests());
+        assertEquals(0, t.getMaxWait());
+        assertEquals(0, t.getRate(), 0);
+    }
+
+    @Test
+    public void queueRequestsOverLimit() {
+        RateLimiter limiter = mock(RateLimiter.class);
+        // First one passes right away, the rest waits for its turn
+        when(limiter.acquire()).thenReturn(0D, 0.1, 0.3, 0.2);
+        Throttle t = new Throttle("compute", 10, limiter);
+        for (int i = 0; i < 4; i++) {
+            t.acquire();
+        }
+
+        assertEquals(4, t.getRequests());
+        assertEquals(10, t.getRate(), 0);
+        assertEquals(200, t.getLastWait());
+        assertEquals(300, t.getMaxWait());
+        assertEquals(150, t.getAverageWait());
+    }
+
+    @Test
+    public void configureRate() {
+        String property = Throttle.class.getName() + ".compute.rate";
+        try {
+            assertEquals(0, Throttle.forService("compute").getRate(), 0);
+
+            System.setProperty(property, "2.5");
+            assertEquals(2.5, Throttle.forService("compute").getRate(), 0);
+
+            System.setProperty(property, "fast");
+            assertEquals(0, Throttle.forService("compute").getRate(), 0);
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+}
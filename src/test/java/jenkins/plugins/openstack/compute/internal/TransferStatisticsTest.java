@@ -0,0 +1,131 @@
+package jenkins.plugins.openstack.compute.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+import org.openstack4j.core.transport.HttpRequest;
+import org.openstack4j.core.transport.HttpResponse;
+import org.openstack4j.core.transport.internal.HttpExecutor;
+
+public class TransferStatisticsTest {
+
+    @Test
+    public void countBytesAsRead() throws Exception {
+        TransferStatistics stats = new TransferStatistics();
+        TransferStatistics.Operation op = stats.response("list servers", true);
+        assertEquals(1, op.getCalls());
+        assertEquals(1, op.getCompressedCalls());
+
+        InputStream in = new HttpTransport.MeteredStream(new ByteArrayInputStream(new byte[100]), op);
+        in.read();
+        assertEquals(1, op.getBytes());
+
+        in.read(new byte[20]);
+        in.skip(9);
+        // Reported before the stream is closed
+        assertEquals(30, op.getBytes());
+        assertEquals(30, op.getLastBytes());
+
+        in.read(new byte[200]);
+        assertEquals(-1, in.read());
+        in.close();
+        assertEquals(100, op.getBytes());
+        assertEquals(100, op.getLastBytes());
+    }
+
+    @Test
+    public void aggregatePerOperation() throws Exception {
+        TransferStatistics stats = new TransferStatistics();
+        read(stats.response("list servers", false), 100);
+        read(stats.response("list servers", true), 50);
+        read(stats.response("get server", false), 10);
+
+        List<TransferStatistics.Operation> ops = stats.getOperations();
+        assertEquals(2, ops.size());
+        TransferStatistics.Operation get = ops.get(0);
+        assertEquals("get server", get.getName());
+        assertEquals(1, get.getCalls());
+        assertEquals(10, get.getBytes());
+
+        TransferStatistics.Operation list = ops.get(1);
+        assertEquals("list servers", list.getName());
+        assertEquals(2, list.getCalls());
+        assertEquals(1, list.getCompressedCalls());
+        assertEquals(150, list.getBytes());
+        assertEquals(75, list.getAverageBytes());
+        assertEquals(50, list.getLastBytes());
+    }
+
+    @Test
+    public void meterCompressedResponse() throws Exception {
+        HttpTransport.install();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write("{\"servers\": []}".getBytes("UTF-8"));
+        }
+        final byte[] body = compressed.toByteArray();
+        final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/servers", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        try {
+            TransferStatistics stats = new TransferStatistics();
+            HttpRequest<Map> request = HttpRequest.builder(Map.class)
+                    .endpoint("http://localhost:" + server.getAddress().getPort())
+                    .path("/servers")
+                    .methodGet()
+                    .build()
+            ;
+            Map<?, ?> entity;
+            try (HttpTransport.Metering metering = HttpTransport.meter(stats, "list servers")) {
+                try (HttpResponse response = HttpExecutor.create().execute(request)) {
+                    entity = response.readEntity(Map.class);
+                }
+            }
+
+            assertThat(acceptEncoding.get(), containsString("gzip"));
+            assertEquals("Decompressed for the caller", "[]", String.valueOf(entity.get("servers")));
+            TransferStatistics.Operation op = stats.getOperations().get(0);
+            assertEquals(1, op.getCalls());
+            assertEquals(1, op.getCompressedCalls());
+            assertEquals("Bytes on the wire", body.length, op.getBytes());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void read(TransferStatistics.Operation op, int bytes) throws Exception {
+        try (InputStream in = new HttpTransport.MeteredStream(new ByteArrayInputStream(new byte[bytes]), op)) {
+            while (in.read(new byte[16]) != -1) {
+                // Drain
+            }
+        }
+    }
+}